@@ -0,0 +1,69 @@
+package gridwars.benchmark;
+
+import cern.ais.gridwars.api.bot.PlayerBot;
+import cern.ais.gridwars.api.command.MovementCommand;
+import gridwars.starter.Frieren;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the latency of a single {@link PlayerBot#getNextCommands} call on a synthetic board.
+ *
+ * Runs in sample mode so that JMH reports the p50/p99 turn latency; run with {@code -prof gc} (the default of the
+ * {@code jmh} Gradle task) to get the allocation rate per turn as well. The {@code parallelDecisions} parameter only
+ * changes {@link Frieren}, which then decides its border cells on the common fork/join pool.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BotTurnBenchmark {
+
+    @Param({"ExpandBot", "MovingBot", "QuantumConqueror", "Frieren"})
+    String bot;
+
+    @Param({"50", "100", "200"})
+    int universeSize;
+
+    @Param({"0.05", "0.4"})
+    double myDensity;
+
+    @Param({"0.3"})
+    double enemyDensity;
+
+    @Param({"20", "100"})
+    int maxPopulation;
+
+    // Most bots switch strategy between the early and the late game
+    @Param({"10", "100"})
+    int turn;
+
+    @Param({"false", "true"})
+    boolean parallelDecisions;
+
+    private FakeUniverseView universeView;
+    private PlayerBot playerBot;
+    private final List<MovementCommand> commandList = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        universeView = new FakeUniverseView(universeSize, myDensity, enemyDensity, maxPopulation, 42L);
+        universeView.setCurrentTurn(turn);
+        playerBot = (PlayerBot) Class.forName("gridwars.starter." + bot).getDeclaredConstructor().newInstance();
+        if (playerBot instanceof Frieren) {
+            ((Frieren) playerBot).setParallelDecisions(parallelDecisions);
+        }
+    }
+
+    @Benchmark
+    public List<MovementCommand> nextCommands() {
+        commandList.clear();
+        playerBot.getNextCommands(universeView, commandList);
+        return commandList;
+    }
+}
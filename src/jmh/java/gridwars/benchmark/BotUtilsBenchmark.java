@@ -0,0 +1,116 @@
+package gridwars.benchmark;
+
+import cern.ais.gridwars.api.Coordinates;
+import gridwars.utils.BoardSnapshot;
+import gridwars.utils.BotUtils;
+import gridwars.utils.DistanceField;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link BotUtils} helpers applied to every owned cell of a synthetic board, comparing the
+ * {@link Coordinates} based variants with the {@link BoardSnapshot} based ones.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BotUtilsBenchmark {
+
+    @Param({"50", "200"})
+    int universeSize;
+
+    @Param({"0.4"})
+    double myDensity;
+
+    @Param({"0.3"})
+    double enemyDensity;
+
+    private FakeUniverseView universeView;
+    private List<Coordinates> myCells;
+    private final BoardSnapshot board = new BoardSnapshot();
+    private final DistanceField distances = new DistanceField();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        universeView = new FakeUniverseView(universeSize, myDensity, enemyDensity, 100, 42L);
+        myCells = universeView.getMyCells();
+        board.update(universeView);
+    }
+
+    @Benchmark
+    public void snapshotUpdate() {
+        board.update(universeView);
+    }
+
+    @Benchmark
+    public void neighborCountsByCoordinates(Blackhole blackhole) {
+        for (Coordinates cell : myCells) {
+            blackhole.consume(BotUtils.countFriendlyNeighbors(cell, universeView));
+            blackhole.consume(BotUtils.countEnemyNeighbors(cell, universeView));
+            blackhole.consume(BotUtils.calculateNeighborPopulation(cell, universeView));
+        }
+    }
+
+    @Benchmark
+    public void neighborCountsBySnapshot(Blackhole blackhole) {
+        for (int i = 0; i < board.getMyCellCount(); i++) {
+            int cell = board.getMyCell(i);
+            blackhole.consume(BotUtils.countFriendlyNeighbors(cell, board));
+            blackhole.consume(BotUtils.countEnemyNeighbors(cell, board));
+            blackhole.consume(BotUtils.calculateNeighborPopulation(cell, board));
+        }
+    }
+
+    @Benchmark
+    public void directionsByCoordinates(Blackhole blackhole) {
+        for (Coordinates cell : myCells) {
+            blackhole.consume(BotUtils.getEmptyNeighborDirections(cell, universeView));
+            blackhole.consume(BotUtils.getWeakestEnemyDirections(cell, universeView));
+            blackhole.consume(BotUtils.getEnemyClusterDirections(cell, universeView));
+        }
+    }
+
+    @Benchmark
+    public void directionsBySnapshot(Blackhole blackhole) {
+        for (int i = 0; i < board.getMyCellCount(); i++) {
+            int cell = board.getMyCell(i);
+            blackhole.consume(BotUtils.getEmptyNeighborDirections(cell, board));
+            blackhole.consume(BotUtils.getWeakestEnemyDirections(cell, board));
+            blackhole.consume(BotUtils.getEnemyClusterDirections(cell, board));
+        }
+    }
+
+    @Benchmark
+    public void enemiesInRadius(Blackhole blackhole) {
+        for (Coordinates cell : myCells) {
+            blackhole.consume(BotUtils.getEnemiesInRadius(cell, universeView, 3));
+        }
+    }
+
+    @Benchmark
+    public void enemiesInRadiusByRings(Blackhole blackhole) {
+        for (int i = 0; i < board.getMyCellCount(); i++) {
+            blackhole.consume(BotUtils.countEnemiesWithinRadius(board.getMyCell(i), board, 3));
+        }
+    }
+
+    @Benchmark
+    public void enemiesInRadiusByDistanceField(Blackhole blackhole) {
+        distances.compute(board, BoardSnapshot.ENEMY, 3);
+        for (int i = 0; i < board.getMyCellCount(); i++) {
+            blackhole.consume(distances.isWithin(board.getMyCell(i), 3));
+        }
+    }
+
+    @Benchmark
+    public void distanceFields() {
+        distances.compute(board, BoardSnapshot.ENEMY);
+        distances.compute(board, BoardSnapshot.EMPTY);
+    }
+}
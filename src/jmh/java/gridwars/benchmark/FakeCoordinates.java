@@ -0,0 +1,110 @@
+package gridwars.benchmark;
+
+import cern.ais.gridwars.api.Coordinates;
+import cern.ais.gridwars.api.command.MovementCommand;
+
+/**
+ * Immutable toroidal coordinates for the synthetic universes used by the benchmarks.
+ */
+final class FakeCoordinates implements Coordinates {
+    private final int x;
+    private final int y;
+    private final int universeSize;
+
+    FakeCoordinates(int x, int y, int universeSize) {
+        this.x = Math.floorMod(x, universeSize);
+        this.y = Math.floorMod(y, universeSize);
+        this.universeSize = universeSize;
+    }
+
+    @Override
+    public int getX() {
+        return x;
+    }
+
+    @Override
+    public int getY() {
+        return y;
+    }
+
+    @Override
+    public Coordinates getRelative(int distance, MovementCommand.Direction direction) {
+        switch (direction) {
+            case UP:
+                return getUp(distance);
+            case DOWN:
+                return getDown(distance);
+            case LEFT:
+                return getLeft(distance);
+            default:
+                return getRight(distance);
+        }
+    }
+
+    @Override
+    public Coordinates getNeighbour(MovementCommand.Direction direction) {
+        return getRelative(1, direction);
+    }
+
+    @Override
+    public Coordinates getLeft(int distance) {
+        return new FakeCoordinates(x - distance, y, universeSize);
+    }
+
+    @Override
+    public Coordinates getLeft() {
+        return getLeft(1);
+    }
+
+    @Override
+    public Coordinates getRight(int distance) {
+        return new FakeCoordinates(x + distance, y, universeSize);
+    }
+
+    @Override
+    public Coordinates getRight() {
+        return getRight(1);
+    }
+
+    @Override
+    public Coordinates getUp(int distance) {
+        return new FakeCoordinates(x, y - distance, universeSize);
+    }
+
+    @Override
+    public Coordinates getUp() {
+        return getUp(1);
+    }
+
+    @Override
+    public Coordinates getDown(int distance) {
+        return new FakeCoordinates(x, y + distance, universeSize);
+    }
+
+    @Override
+    public Coordinates getDown() {
+        return getDown(1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Coordinates)) {
+            return false;
+        }
+        Coordinates other = (Coordinates) o;
+        return x == other.getX() && y == other.getY();
+    }
+
+    @Override
+    public int hashCode() {
+        return y * universeSize + x;
+    }
+
+    @Override
+    public String toString() {
+        return "(" + x + "," + y + ")";
+    }
+}
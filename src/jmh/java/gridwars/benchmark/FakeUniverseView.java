@@ -0,0 +1,144 @@
+package gridwars.benchmark;
+
+import cern.ais.gridwars.api.Coordinates;
+import cern.ais.gridwars.api.UniverseView;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Static universe with a generated ownership and population layout, seen from the perspective of one bot.
+ *
+ * Each cell is independently owned by the bot with probability {@code myDensity}, by the enemy with probability
+ * {@code enemyDensity}, and empty otherwise. Occupied cells get a population drawn uniformly from
+ * {@code [1, maxPopulation]}. The same seed always produces the same board.
+ */
+public class FakeUniverseView implements UniverseView {
+    static final byte EMPTY = 0;
+    static final byte MINE = 1;
+    static final byte ENEMY = 2;
+
+    private final int universeSize;
+    private final byte[] owners;
+    private final int[] populations;
+    private final Coordinates[] coordinates;
+    private final List<Coordinates> myCells;
+    private int currentTurn;
+
+    public FakeUniverseView(int universeSize, double myDensity, double enemyDensity, int maxPopulation, long seed) {
+        this.universeSize = universeSize;
+        int cellCount = universeSize * universeSize;
+        owners = new byte[cellCount];
+        populations = new int[cellCount];
+        coordinates = new Coordinates[cellCount];
+
+        Random random = new Random(seed);
+        List<Coordinates> cells = new ArrayList<>();
+        for (int cell = 0; cell < cellCount; cell++) {
+            coordinates[cell] = new FakeCoordinates(cell % universeSize, cell / universeSize, universeSize);
+
+            double roll = random.nextDouble();
+            if (roll < myDensity) {
+                owners[cell] = MINE;
+                cells.add(coordinates[cell]);
+            } else if (roll < myDensity + enemyDensity) {
+                owners[cell] = ENEMY;
+            }
+            if (owners[cell] != EMPTY) {
+                populations[cell] = 1 + random.nextInt(maxPopulation);
+            }
+        }
+
+        // Every bot expects to own at least one cell
+        if (cells.isEmpty()) {
+            owners[0] = MINE;
+            populations[0] = maxPopulation;
+            cells.add(coordinates[0]);
+        }
+        myCells = Collections.unmodifiableList(cells);
+    }
+
+    public void setCurrentTurn(int currentTurn) {
+        this.currentTurn = currentTurn;
+    }
+
+    private int index(int x, int y) {
+        return Math.floorMod(y, universeSize) * universeSize + Math.floorMod(x, universeSize);
+    }
+
+    @Override
+    public List<Coordinates> getMyCells() {
+        return myCells;
+    }
+
+    @Override
+    public int getPopulation(Coordinates coordinates) {
+        return getPopulation(coordinates.getX(), coordinates.getY());
+    }
+
+    @Override
+    public int getPopulation(int x, int y) {
+        return populations[index(x, y)];
+    }
+
+    @Override
+    public boolean isEmpty(Coordinates coordinates) {
+        return isEmpty(coordinates.getX(), coordinates.getY());
+    }
+
+    @Override
+    public boolean isEmpty(int x, int y) {
+        return owners[index(x, y)] == EMPTY;
+    }
+
+    @Override
+    public boolean belongsToMe(Coordinates coordinates) {
+        return belongsToMe(coordinates.getX(), coordinates.getY());
+    }
+
+    @Override
+    public boolean belongsToMe(int x, int y) {
+        return owners[index(x, y)] == MINE;
+    }
+
+    @Override
+    public int getUniverseSize() {
+        return universeSize;
+    }
+
+    @Override
+    public double getGrowthRate() {
+        return 1.1;
+    }
+
+    @Override
+    public int getMaximumPopulation() {
+        return 100;
+    }
+
+    @Override
+    public int getTurnTimeOutInMilliseconds() {
+        return 50;
+    }
+
+    @Override
+    public int getCurrentTurn() {
+        return currentTurn;
+    }
+
+    @Override
+    public int getTurnLimit() {
+        return 2000;
+    }
+
+    @Override
+    public Coordinates getCoordinates(int x, int y) {
+        return coordinates[index(x, y)];
+    }
+
+    @Override
+    public void log(String message) {
+    }
+}
@@ -0,0 +1,63 @@
+package gridwars.benchmark;
+
+import gridwars.search.PlanSearch;
+import gridwars.utils.BoardSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the rollout throughput of {@link PlanSearch} on a synthetic board, reported in rollouts per millisecond.
+ *
+ * With {@code threads} set to 0 the rollouts run on the common pool, otherwise on a pool of the given size, so
+ * comparing the two shows how the search scales with the cores available.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PlanSearchBenchmark {
+    private static final int ROLLOUTS = 256;
+
+    @Param({"50"})
+    int universeSize;
+
+    @Param({"0.4"})
+    double myDensity;
+
+    @Param({"0.3"})
+    double enemyDensity;
+
+    @Param({"6"})
+    int horizon;
+
+    @Param({"1", "0"})
+    int threads;
+
+    private final BoardSnapshot board = new BoardSnapshot();
+    private ForkJoinPool pool;
+    private PlanSearch search;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board.update(new FakeUniverseView(universeSize, myDensity, enemyDensity, 100, 42L));
+        pool = threads == 0 ? ForkJoinPool.commonPool() : new ForkJoinPool(threads);
+        search = new PlanSearch(pool, horizon).addDefaultPlans().setMaxRollouts(ROLLOUTS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROLLOUTS)
+    public int rollouts() {
+        return search.search(board, 1.1, 100, Long.MAX_VALUE);
+    }
+}
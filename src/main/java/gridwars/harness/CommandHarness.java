@@ -0,0 +1,301 @@
+package gridwars.harness;
+
+import cern.ais.gridwars.api.bot.PlayerBot;
+import cern.ais.gridwars.api.command.MovementCommand;
+import gridwars.replay.ReplayBoard;
+import gridwars.replay.ReplayReader;
+import gridwars.simulator.GameSimulator;
+import gridwars.tournament.TournamentRunner;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays single turns of a bot on recorded board states, outside of any match.
+ *
+ * Positions are read line by line in the format of {@link Position} and the commands of the bot are written as one
+ * line per position, in input order:
+ * <pre>
+ * &lt;id&gt; &lt;x&gt;,&lt;y&gt;,&lt;U|D|L|R&gt;,&lt;amount&gt;...
+ * </pre>
+ * A position the bot fails on gets the line {@code <id> ! <exception class>}. Blank lines and lines starting with
+ * {@code #} are skipped.
+ *
+ * Positions are handed to the workers in batches. Every call of {@link #run} starts with new workers, one per
+ * thread, built from the settings at that time. A worker keeps one bot, one {@link Position}, one
+ * {@link PositionView} and one command list, and reuses them for all positions of the run, so the bot keeps its
+ * state from one position to the next as within a match. That order only matches the input with a single thread;
+ * use fresh bots for output that does not depend on the number of threads.
+ */
+public class CommandHarness {
+    private static final int BATCH_SIZE = 256;
+
+    private final Class<? extends PlayerBot> botClass;
+    private final int threads;
+
+    private boolean freshBots;
+    private int turnTimeOutInMilliseconds;
+    private int turnLimit;
+    private double defaultGrowthRate;
+    private int defaultMaximumPopulation;
+
+    private final AtomicLong positionCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+
+    private static final class Worker {
+        final Position position = new Position();
+        final PositionView view;
+        final List<MovementCommand> commands = new ArrayList<>();
+        PlayerBot bot;
+
+        Worker(int turnTimeOutInMilliseconds, int turnLimit) {
+            view = new PositionView(turnTimeOutInMilliseconds, turnLimit);
+        }
+    }
+
+    public CommandHarness(Class<? extends PlayerBot> botClass, int threads) {
+        this.botClass = botClass;
+        this.threads = threads;
+        GameSimulator settings = new GameSimulator();
+        turnTimeOutInMilliseconds = settings.getTurnTimeOutInMilliseconds();
+        turnLimit = settings.getRoundLimit() * 2;
+        defaultGrowthRate = settings.getGrowthRate();
+        defaultMaximumPopulation = settings.getMaximumPopulation();
+    }
+
+    // Create a new bot for every position instead of one per worker
+    public CommandHarness setFreshBots(boolean freshBots) {
+        this.freshBots = freshBots;
+        return this;
+    }
+
+    // Settings of the views handed to the bot; they do not vary between the positions of a run
+    public CommandHarness setTurnTimeOut(int turnTimeOutInMilliseconds, int turnLimit) {
+        this.turnTimeOutInMilliseconds = turnTimeOutInMilliseconds;
+        this.turnLimit = turnLimit;
+        return this;
+    }
+
+    // Growth rate and maximum population of positions taken from replays, which do not record them
+    public CommandHarness setReplaySettings(double growthRate, int maximumPopulation) {
+        this.defaultGrowthRate = growthRate;
+        this.defaultMaximumPopulation = maximumPopulation;
+        return this;
+    }
+
+    // Play every position and write the commands of the bot, in input order
+    public void run(Iterator<String> lines, Writer output) throws IOException {
+        if (threads <= 1) {
+            Worker worker = new Worker(turnTimeOutInMilliseconds, turnLimit);
+            while (lines.hasNext()) {
+                output.write(evaluate(nextBatch(lines), worker));
+            }
+            output.flush();
+            return;
+        }
+
+        // Every batch borrows an idle worker, so no worker is used by two threads at once
+        BlockingQueue<Worker> idleWorkers = new ArrayBlockingQueue<>(threads);
+        for (int i = 0; i < threads; i++) {
+            idleWorkers.add(new Worker(turnTimeOutInMilliseconds, turnLimit));
+        }
+
+        AtomicInteger workerCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "harness-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            // A few batches per worker in flight keep all workers busy without reading the whole input ahead
+            Deque<Future<String>> pending = new ArrayDeque<>();
+            while (lines.hasNext()) {
+                List<String> batch = nextBatch(lines);
+                pending.add(executor.submit(() -> {
+                    Worker worker = idleWorkers.take();
+                    try {
+                        return evaluate(batch, worker);
+                    } finally {
+                        idleWorkers.add(worker);
+                    }
+                }));
+                if (pending.size() >= 4 * threads) {
+                    output.write(pending.poll().get());
+                }
+            }
+            while (!pending.isEmpty()) {
+                output.write(pending.poll().get());
+            }
+            output.flush();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Harness interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<String> nextBatch(Iterator<String> lines) {
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        while (batch.size() < BATCH_SIZE && lines.hasNext()) {
+            String line = lines.next();
+            if (!line.trim().isEmpty() && !line.startsWith("#")) {
+                batch.add(line);
+            }
+        }
+        return batch;
+    }
+
+    private String evaluate(List<String> batch, Worker worker) {
+        StringBuilder builder = new StringBuilder(batch.size() * 64);
+        for (String line : batch) {
+            Position position = worker.position;
+            List<MovementCommand> commands = worker.commands;
+            commands.clear();
+            int start = builder.length();
+            try {
+                position.parse(line);
+                worker.view.load(position);
+                if (worker.bot == null || freshBots) {
+                    worker.bot = botClass.getDeclaredConstructor().newInstance();
+                }
+                worker.bot.getNextCommands(worker.view, commands);
+                builder.append(position.getId());
+                for (MovementCommand command : commands) {
+                    builder.append(' ').append(command.getCoordinatesFrom().getX())
+                            .append(',').append(command.getCoordinatesFrom().getY())
+                            .append(',').append(command.getDirection().name().charAt(0))
+                            .append(',').append(command.getAmount());
+                }
+            } catch (Exception e) {
+                failureCount.incrementAndGet();
+                builder.setLength(start);
+                builder.append(position.getId()).append(" ! ").append(e.getClass().getSimpleName());
+            }
+            builder.append('\n');
+        }
+        positionCount.addAndGet(batch.size());
+        return builder.toString();
+    }
+
+    // Lines of the positions seen by the bot of a replay, one per recorded turn, with ids "<file>:<turn>"
+    public Iterator<String> replayLines(ReplayReader reader) {
+        ReplayBoard board = new ReplayBoard(reader);
+        int size = reader.getUniverseSize();
+        String name = reader.getFile().getFileName().toString();
+        Position position = new Position();
+        byte[] owners = new byte[size * size];
+        int[] populations = new int[size * size];
+
+        return new Iterator<String>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < reader.getTurnCount();
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                board.seek(index);
+                for (int cell = 0; cell < owners.length; cell++) {
+                    owners[cell] = board.getOwner(cell);
+                    populations[cell] = board.getPopulation(cell);
+                }
+                int turn = reader.getTurn(index++);
+                position.set(name + ":" + turn, size, turn, defaultGrowthRate, defaultMaximumPopulation, owners, populations);
+                StringBuilder builder = new StringBuilder();
+                position.format(builder);
+                return builder.toString();
+            }
+        };
+    }
+
+    public long getPositionCount() {
+        return positionCount.get();
+    }
+
+    // Positions that could not be parsed or on which the bot threw
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * Usage: {@code CommandHarness [--threads n] [--fresh] [--out file] <bot class> [position file or replay]...}
+     *
+     * Reads positions from the given files, or from standard input if there are none, and writes the commands to
+     * standard output or the given file. Files ending in {@code .gwr} are binary replays whose turns are played as
+     * positions. Bot classes without a package are looked up in {@code gridwars.starter}.
+     */
+    public static void main(String[] args) throws Exception {
+        int threads = 1;
+        boolean freshBots = false;
+        Path outputFile = null;
+        String botName = null;
+        List<Path> inputs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--fresh":
+                    freshBots = true;
+                    break;
+                case "--out":
+                    outputFile = Paths.get(args[++i]);
+                    break;
+                default:
+                    if (botName == null) {
+                        botName = args[i];
+                    } else {
+                        inputs.add(Paths.get(args[i]));
+                    }
+            }
+        }
+
+        if (botName == null) {
+            System.err.println("Usage: CommandHarness [--threads n] [--fresh] [--out file] <bot class>"
+                    + " [position file or replay]...");
+            System.exit(1);
+        }
+
+        CommandHarness harness = new CommandHarness(TournamentRunner.loadBotClass(botName), threads)
+                .setFreshBots(freshBots);
+        long start = System.nanoTime();
+        try (Writer output = new BufferedWriter(outputFile == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8), 1 << 16)) {
+            if (inputs.isEmpty()) {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 16);
+                harness.run(reader.lines().iterator(), output);
+            }
+            for (Path input : inputs) {
+                if (input.toString().endsWith(".gwr")) {
+                    harness.run(harness.replayLines(ReplayReader.open(input)), output);
+                } else {
+                    try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+                        harness.run(reader.lines().iterator(), output);
+                    }
+                }
+            }
+        }
+
+        long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+        System.err.printf(Locale.ROOT, "%d positions (%d failed) in %d ms, %.0f positions/s%n",
+                harness.getPositionCount(), harness.getFailureCount(), micros / 1000,
+                harness.getPositionCount() * 1e6 / Math.max(1, micros));
+    }
+}
@@ -0,0 +1,173 @@
+package gridwars.harness;
+
+import gridwars.utils.BoardSnapshot;
+
+import java.util.Arrays;
+
+/**
+ * Board state of one turn as seen by a bot, in the one-line text format of the {@link CommandHarness}:
+ * <pre>
+ * &lt;id&gt; &lt;universe size&gt; &lt;turn&gt; &lt;growth rate&gt; &lt;maximum population&gt; &lt;cells&gt;...
+ * </pre>
+ * The id is any token without whitespace. The cells follow in index order {@code y * universeSize + x} as
+ * {@code .n} for a run of {@code n} empty cells, {@code +p} for a cell of the bot and {@code -p} for an enemy cell,
+ * each with population {@code p}. Trailing empty cells may be left out. For example {@code p1 3 0 1.1 100 .4 +100
+ * .3 -100} is a 3x3 universe with the bot in the centre and the enemy in the bottom right corner.
+ *
+ * A position is meant to be reused: {@link #parse} only reallocates the arrays when the universe size grows.
+ */
+public class Position {
+    private String id = "";
+    private int universeSize;
+    private int turn;
+    private double growthRate;
+    private int maximumPopulation;
+    private byte[] owners = new byte[0];
+    private int[] populations = new int[0];
+
+    // Read the position from a line of the text format, throwing IllegalArgumentException if it is malformed
+    public void parse(CharSequence line) {
+        Tokenizer tokens = new Tokenizer(line);
+        id = tokens.next("id");
+        universeSize = Integer.parseInt(tokens.next("universe size"));
+        turn = Integer.parseInt(tokens.next("turn"));
+        growthRate = Double.parseDouble(tokens.next("growth rate"));
+        maximumPopulation = Integer.parseInt(tokens.next("maximum population"));
+        if (universeSize <= 0) {
+            throw new IllegalArgumentException("Position " + id + " has universe size " + universeSize);
+        }
+
+        int cellCount = universeSize * universeSize;
+        if (owners.length < cellCount) {
+            owners = new byte[cellCount];
+            populations = new int[cellCount];
+        }
+        int cell = 0;
+        String token;
+        while ((token = tokens.next()) != null) {
+            char kind = token.charAt(0);
+            int value = token.length() > 1 ? Integer.parseInt(token.substring(1)) : -1;
+            if (value < 0 || (kind == '.' ? cell + value : cell + 1) > cellCount) {
+                throw new IllegalArgumentException("Position " + id + " has invalid cell token " + token + " at cell " + cell);
+            }
+            switch (kind) {
+                case '.':
+                    Arrays.fill(owners, cell, cell + value, BoardSnapshot.EMPTY);
+                    Arrays.fill(populations, cell, cell + value, 0);
+                    cell += value;
+                    break;
+                case '+':
+                    set(cell++, BoardSnapshot.MINE, value);
+                    break;
+                case '-':
+                    set(cell++, BoardSnapshot.ENEMY, value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Position " + id + " has invalid cell token " + token);
+            }
+        }
+        Arrays.fill(owners, cell, cellCount, BoardSnapshot.EMPTY);
+        Arrays.fill(populations, cell, cellCount, 0);
+    }
+
+    // Set all fields at once, e.g. from a replay; the arrays are copied
+    public void set(String id, int universeSize, int turn, double growthRate, int maximumPopulation,
+                    byte[] owners, int[] populations) {
+        this.id = id;
+        this.universeSize = universeSize;
+        this.turn = turn;
+        this.growthRate = growthRate;
+        this.maximumPopulation = maximumPopulation;
+        int cellCount = universeSize * universeSize;
+        if (this.owners.length < cellCount) {
+            this.owners = new byte[cellCount];
+            this.populations = new int[cellCount];
+        }
+        System.arraycopy(owners, 0, this.owners, 0, cellCount);
+        System.arraycopy(populations, 0, this.populations, 0, cellCount);
+    }
+
+    private void set(int cell, byte owner, int population) {
+        owners[cell] = owner;
+        populations[cell] = population;
+    }
+
+    // Append the position in the text format, without line break
+    public void format(StringBuilder builder) {
+        builder.append(id).append(' ').append(universeSize).append(' ').append(turn).append(' ')
+                .append(growthRate).append(' ').append(maximumPopulation);
+        int cellCount = universeSize * universeSize;
+        int emptyRun = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (owners[cell] == BoardSnapshot.EMPTY) {
+                emptyRun++;
+                continue;
+            }
+            if (emptyRun > 0) {
+                builder.append(" .").append(emptyRun);
+                emptyRun = 0;
+            }
+            builder.append(owners[cell] == BoardSnapshot.MINE ? " +" : " -").append(populations[cell]);
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getUniverseSize() {
+        return universeSize;
+    }
+
+    public int getTurn() {
+        return turn;
+    }
+
+    public double getGrowthRate() {
+        return growthRate;
+    }
+
+    public int getMaximumPopulation() {
+        return maximumPopulation;
+    }
+
+    // One of BoardSnapshot.EMPTY, MINE or ENEMY
+    public byte getOwner(int cell) {
+        return owners[cell];
+    }
+
+    public int getPopulation(int cell) {
+        return populations[cell];
+    }
+
+    private static final class Tokenizer {
+        private final CharSequence line;
+        private int position;
+
+        Tokenizer(CharSequence line) {
+            this.line = line;
+        }
+
+        String next() {
+            while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+                position++;
+            }
+            if (position == line.length()) {
+                return null;
+            }
+            int start = position;
+            while (position < line.length() && !Character.isWhitespace(line.charAt(position))) {
+                position++;
+            }
+            return line.subSequence(start, position).toString();
+        }
+
+        String next(String field) {
+            String token = next();
+            if (token == null) {
+                throw new IllegalArgumentException("Position is missing its " + field + ": " + line);
+            }
+            return token;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package gridwars.harness;
+
+import cern.ais.gridwars.api.Coordinates;
+import cern.ais.gridwars.api.UniverseView;
+import gridwars.simulator.SimulatedCoordinates;
+import gridwars.utils.BoardSnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link UniverseView} over a {@link Position}. Unlike the views of the simulator, one instance is kept by each
+ * worker and pointed at the next position with {@link #load}, so streaming positions allocates nothing beyond what
+ * the bot does. Coordinates come from a {@link SimulatedCoordinates} grid that is only rebuilt when the universe
+ * size changes.
+ */
+public class PositionView implements UniverseView {
+    private final int turnTimeOutInMilliseconds;
+    private final int turnLimit;
+    private Position position;
+    private SimulatedCoordinates[] grid = new SimulatedCoordinates[0];
+    private int universeSize;
+    private final List<Coordinates> myCells = new ArrayList<>();
+
+    public PositionView(int turnTimeOutInMilliseconds, int turnLimit) {
+        this.turnTimeOutInMilliseconds = turnTimeOutInMilliseconds;
+        this.turnLimit = turnLimit;
+    }
+
+    public void load(Position position) {
+        this.position = position;
+        if (position.getUniverseSize() != universeSize) {
+            universeSize = position.getUniverseSize();
+            grid = SimulatedCoordinates.grid(universeSize);
+        }
+        myCells.clear();
+        for (int cell = 0; cell < grid.length; cell++) {
+            if (position.getOwner(cell) == BoardSnapshot.MINE) {
+                myCells.add(grid[cell]);
+            }
+        }
+    }
+
+    private int index(Coordinates coordinates) {
+        return index(coordinates.getX(), coordinates.getY());
+    }
+
+    private int index(int x, int y) {
+        return Math.floorMod(y, universeSize) * universeSize + Math.floorMod(x, universeSize);
+    }
+
+    @Override
+    public List<Coordinates> getMyCells() {
+        return myCells;
+    }
+
+    @Override
+    public int getPopulation(Coordinates coordinates) {
+        return position.getPopulation(index(coordinates));
+    }
+
+    @Override
+    public int getPopulation(int x, int y) {
+        return position.getPopulation(index(x, y));
+    }
+
+    @Override
+    public boolean isEmpty(Coordinates coordinates) {
+        return position.getOwner(index(coordinates)) == BoardSnapshot.EMPTY;
+    }
+
+    @Override
+    public boolean isEmpty(int x, int y) {
+        return position.getOwner(index(x, y)) == BoardSnapshot.EMPTY;
+    }
+
+    @Override
+    public boolean belongsToMe(Coordinates coordinates) {
+        return position.getOwner(index(coordinates)) == BoardSnapshot.MINE;
+    }
+
+    @Override
+    public boolean belongsToMe(int x, int y) {
+        return position.getOwner(index(x, y)) == BoardSnapshot.MINE;
+    }
+
+    @Override
+    public int getUniverseSize() {
+        return universeSize;
+    }
+
+    @Override
+    public double getGrowthRate() {
+        return position.getGrowthRate();
+    }
+
+    @Override
+    public int getMaximumPopulation() {
+        return position.getMaximumPopulation();
+    }
+
+    @Override
+    public int getTurnTimeOutInMilliseconds() {
+        return turnTimeOutInMilliseconds;
+    }
+
+    @Override
+    public int getCurrentTurn() {
+        return position.getTurn();
+    }
+
+    @Override
+    public int getTurnLimit() {
+        return turnLimit;
+    }
+
+    @Override
+    public Coordinates getCoordinates(int x, int y) {
+        return grid[index(x, y)];
+    }
+
+    @Override
+    public void log(String message) {
+    }
+}
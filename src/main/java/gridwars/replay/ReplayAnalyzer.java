@@ -0,0 +1,212 @@
+package gridwars.replay;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Win rates and territory curves over many replays, read from the turn index of each file only.
+ *
+ * The outcome of a replay is the one recorded in its footer. Replays without it, e.g. from a crashed match, still
+ * add to the territory curves but count as unknown and are left out of the win rate. Empty files, which a recorder
+ * leaves when its match ended before the bot's first turn, are skipped.
+ */
+public class ReplayAnalyzer {
+
+    /**
+     * Results of one bot over all of its replays.
+     */
+    public static class BotStatistics {
+        private final String bot;
+        private final int bucketTurns;
+        private int replays;
+        private int wins;
+        private int losses;
+        private int draws;
+        private int unknown;
+        // Sum of the cell share and number of samples, per bucket of game turns
+        private double[] shareSums = new double[0];
+        private int[] shareCounts = new int[0];
+
+        BotStatistics(String bot, int bucketTurns) {
+            this.bot = bot;
+            this.bucketTurns = bucketTurns;
+        }
+
+        void add(ReplayReader reader) {
+            int last = reader.getTurnCount() - 1;
+            if (last < 0) {
+                return;
+            }
+            replays++;
+            switch (reader.getOutcome()) {
+                case ReplayRecorder.WON:
+                    wins++;
+                    break;
+                case ReplayRecorder.LOST:
+                    losses++;
+                    break;
+                case ReplayRecorder.DRAWN:
+                    draws++;
+                    break;
+                default:
+                    unknown++;
+            }
+
+            for (int i = 0; i <= last; i++) {
+                int bucket = reader.getTurn(i) / bucketTurns;
+                if (bucket >= shareSums.length) {
+                    shareSums = Arrays.copyOf(shareSums, bucket + 1);
+                    shareCounts = Arrays.copyOf(shareCounts, bucket + 1);
+                }
+                int cells = reader.getMyCells(i) + reader.getEnemyCells(i);
+                shareSums[bucket] += cells == 0 ? 0.5 : (double) reader.getMyCells(i) / cells;
+                shareCounts[bucket]++;
+            }
+        }
+
+        public String getBot() {
+            return bot;
+        }
+
+        public int getReplays() {
+            return replays;
+        }
+
+        public int getWins() {
+            return wins;
+        }
+
+        public int getLosses() {
+            return losses;
+        }
+
+        public int getDraws() {
+            return draws;
+        }
+
+        // Replays without a recorded outcome
+        public int getUnknown() {
+            return unknown;
+        }
+
+        // Share of the replays with a known outcome that were won, counting draws as half
+        public double getWinRate() {
+            int decided = wins + losses + draws;
+            return decided == 0 ? 0 : (wins + 0.5 * draws) / decided;
+        }
+
+        public int getBucketCount() {
+            return shareSums.length;
+        }
+
+        // Mean share of the occupied cells owned by the bot in the bucket, or NaN if no replay reached it
+        public double getCellShare(int bucket) {
+            return shareCounts[bucket] == 0 ? Double.NaN : shareSums[bucket] / shareCounts[bucket];
+        }
+    }
+
+    private final int bucketTurns;
+    private final Map<String, BotStatistics> statistics = new TreeMap<>();
+
+    public ReplayAnalyzer(int bucketTurns) {
+        this.bucketTurns = bucketTurns;
+    }
+
+    public void add(ReplayReader reader) {
+        statistics.computeIfAbsent(reader.getBotName(), bot -> new BotStatistics(bot, bucketTurns)).add(reader);
+    }
+
+    public Collection<BotStatistics> getStatistics() {
+        return statistics.values();
+    }
+
+    public void writeTerritoryCsv(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("bot,turn,replays,cell_share\n");
+            for (BotStatistics bot : statistics.values()) {
+                for (int bucket = 0; bucket < bot.getBucketCount(); bucket++) {
+                    if (bot.shareCounts[bucket] > 0) {
+                        writer.write(String.format(Locale.ROOT, "%s,%d,%d,%.4f%n",
+                                bot.getBot(), bucket * bucketTurns, bot.shareCounts[bucket], bot.getCellShare(bucket)));
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "%-40s %8s %6s %6s %6s %8s %8s%n",
+                "Bot", "Replays", "Won", "Lost", "Drawn", "Unknown", "Win rate"));
+        for (BotStatistics bot : statistics.values()) {
+            builder.append(String.format(Locale.ROOT, "%-40s %8d %6d %6d %6d %8d %8.3f%n", bot.getBot(),
+                    bot.getReplays(), bot.getWins(), bot.getLosses(), bot.getDraws(), bot.getUnknown(),
+                    bot.getWinRate()));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Usage: {@code ReplayAnalyzer [--bucket turns] [--out file] <replay file or directory>...}
+     *
+     * Directories are searched recursively for {@code .gwr} files; empty ones are skipped. Prints the win rate of
+     * every recorded bot and, with {@code --out}, writes its mean cell share per bucket of game turns as CSV.
+     */
+    public static void main(String[] args) throws IOException {
+        int bucketTurns = 10;
+        Path outputFile = null;
+        List<Path> inputs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--bucket":
+                    bucketTurns = Integer.parseInt(args[++i]);
+                    break;
+                case "--out":
+                    outputFile = Paths.get(args[++i]);
+                    break;
+                default:
+                    inputs.add(Paths.get(args[i]));
+            }
+        }
+
+        if (inputs.isEmpty()) {
+            System.err.println("Usage: ReplayAnalyzer [--bucket turns] [--out file] <replay file or directory>...");
+            System.exit(1);
+        }
+
+        ReplayAnalyzer analyzer = new ReplayAnalyzer(bucketTurns);
+        long start = System.nanoTime();
+        int files = 0;
+        int skipped = 0;
+        for (Path input : inputs) {
+            List<Path> replays;
+            try (Stream<Path> paths = Files.walk(input)) {
+                replays = paths.filter(path -> path.toString().endsWith(".gwr")).sorted().collect(Collectors.toList());
+            }
+            for (Path replay : replays) {
+                if (Files.size(replay) == 0) {
+                    skipped++;
+                    continue;
+                }
+                analyzer.add(ReplayReader.open(replay));
+                files++;
+            }
+        }
+
+        System.out.print(analyzer);
+        System.out.println(files + " replays in " + (System.nanoTime() - start) / 1_000_000 + " ms"
+                + (skipped > 0 ? ", " + skipped + " empty files skipped" : ""));
+        if (outputFile != null) {
+            analyzer.writeTerritoryCsv(outputFile);
+        }
+    }
+}
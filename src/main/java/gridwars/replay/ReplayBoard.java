@@ -0,0 +1,52 @@
+package gridwars.replay;
+
+import java.util.Arrays;
+
+/**
+ * Ownership and population of every cell at a turn of a replay, rebuilt by applying the recorded deltas.
+ *
+ * Moving forward only decodes the turns in between; moving back starts over from the first turn.
+ */
+public class ReplayBoard implements ReplayVisitor {
+    private final ReplayReader reader;
+    private final byte[] owners;
+    private final int[] populations;
+    private int turnIndex = -1;
+
+    public ReplayBoard(ReplayReader reader) {
+        this.reader = reader;
+        int cellCount = reader.getUniverseSize() * reader.getUniverseSize();
+        owners = new byte[cellCount];
+        populations = new int[cellCount];
+    }
+
+    // Bring the board to the state seen by the bot at the given turn index of the replay
+    public void seek(int index) {
+        if (index < turnIndex) {
+            Arrays.fill(owners, ReplayRecorder.EMPTY);
+            Arrays.fill(populations, 0);
+            turnIndex = -1;
+        }
+        while (turnIndex < index) {
+            reader.readTurn(++turnIndex, this);
+        }
+    }
+
+    @Override
+    public void cellChanged(int cell, byte owner, int populationDelta) {
+        owners[cell] = owner;
+        populations[cell] += populationDelta;
+    }
+
+    public int getTurnIndex() {
+        return turnIndex;
+    }
+
+    public byte getOwner(int cell) {
+        return owners[cell];
+    }
+
+    public int getPopulation(int cell) {
+        return populations[cell];
+    }
+}
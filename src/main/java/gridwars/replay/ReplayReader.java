@@ -0,0 +1,189 @@
+package gridwars.replay;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a replay written by {@link ReplayRecorder} through a memory mapping of the file.
+ *
+ * The turn index at the end of the file gives the offset and the territory of every turn in a fixed-size entry, so
+ * territory queries and jumps to a turn record take constant time and nothing is copied onto the heap. Replays
+ * without index, e.g. from a match that crashed, are scanned once to rebuild it in memory. The outcome of the match
+ * is only known from the footer.
+ *
+ * The mapping stays valid after the file channel is closed and is released by the garbage collector.
+ */
+public class ReplayReader {
+    private final Path file;
+    private final MappedByteBuffer buffer;
+    private final int universeSize;
+    private final String botName;
+    private final int recordsStart;
+
+    private final ByteBuffer index;
+    private final int turnCount;
+    private final byte outcome;
+
+    private ReplayReader(Path file, MappedByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer;
+        if (buffer.limit() < 11 || buffer.getInt(0) != ReplayRecorder.MAGIC) {
+            throw new IOException(file + " is not a replay file");
+        }
+        byte version = buffer.get(4);
+        if (version != ReplayRecorder.VERSION && version != 1) {
+            throw new IOException(file + " has unsupported replay version " + version);
+        }
+        universeSize = buffer.getInt(5);
+        int nameLength = buffer.getShort(9);
+        byte[] name = new byte[nameLength];
+        ByteBuffer header = buffer.duplicate();
+        header.position(11);
+        header.get(name);
+        botName = new String(name, StandardCharsets.UTF_8);
+        recordsStart = 11 + nameLength;
+
+        int footerSize = version == 1 ? ReplayRecorder.VERSION_1_FOOTER_SIZE : ReplayRecorder.FOOTER_SIZE;
+        int footer = buffer.limit() - footerSize;
+        if (footer >= recordsStart && buffer.getInt(footer + footerSize - 4) == ReplayRecorder.INDEX_MAGIC) {
+            turnCount = buffer.getInt(footer + 8);
+            outcome = version == 1 ? ReplayRecorder.UNKNOWN : buffer.get(footer + 12);
+            ByteBuffer indexView = buffer.duplicate();
+            indexView.position((int) buffer.getLong(footer));
+            indexView.limit(footer);
+            index = indexView.slice();
+        } else {
+            index = rebuildIndex();
+            turnCount = index.limit() / ReplayRecorder.INDEX_ENTRY_SIZE;
+            outcome = ReplayRecorder.UNKNOWN;
+        }
+    }
+
+    public static ReplayReader open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large for a replay");
+            }
+            return new ReplayReader(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    // Decode all complete turn records; a record cut off at the end of the file is dropped
+    private ByteBuffer rebuildIndex() {
+        ByteBuffer records = buffer.duplicate();
+        records.position(recordsStart);
+        ByteBuffer entries = ByteBuffer.allocate(ReplayRecorder.INDEX_ENTRY_SIZE * 64);
+        try {
+            while (records.hasRemaining()) {
+                int offset = records.position();
+                int turn = (int) Varints.getUnsigned(records);
+                int myCells = (int) Varints.getUnsigned(records);
+                int enemyCells = (int) Varints.getUnsigned(records);
+                long myPopulation = Varints.getUnsigned(records);
+                long enemyPopulation = Varints.getUnsigned(records);
+                skipChangesAndCommands(records);
+
+                if (!entries.hasRemaining()) {
+                    ByteBuffer larger = ByteBuffer.allocate(entries.capacity() * 2);
+                    entries.flip();
+                    entries = larger.put(entries);
+                }
+                entries.putLong(offset).putInt(turn).putInt(myCells).putInt(enemyCells)
+                        .putLong(myPopulation).putLong(enemyPopulation);
+            }
+        } catch (BufferUnderflowException e) {
+            // Truncated last record
+        }
+        entries.flip();
+        return entries;
+    }
+
+    private static void skipChangesAndCommands(ByteBuffer records) {
+        long changes = Varints.getUnsigned(records);
+        for (long i = 0; i < changes; i++) {
+            Varints.getUnsigned(records);
+            records.get();
+            Varints.getUnsigned(records);
+        }
+        long commands = Varints.getUnsigned(records);
+        for (long i = 0; i < commands; i++) {
+            Varints.getUnsigned(records);
+            records.get();
+            Varints.getUnsigned(records);
+        }
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    // Class name of the recorded bot
+    public String getBotName() {
+        return botName;
+    }
+
+    public int getUniverseSize() {
+        return universeSize;
+    }
+
+    // ReplayRecorder.WON, LOST, DRAWN or UNKNOWN for the recorded bot
+    public byte getOutcome() {
+        return outcome;
+    }
+
+    // Number of recorded turns of the bot; turn indices run from 0 to this count minus one
+    public int getTurnCount() {
+        return turnCount;
+    }
+
+    // Game turn of the recorded turn index
+    public int getTurn(int index) {
+        return this.index.getInt(index * ReplayRecorder.INDEX_ENTRY_SIZE + 8);
+    }
+
+    public int getMyCells(int index) {
+        return this.index.getInt(index * ReplayRecorder.INDEX_ENTRY_SIZE + 12);
+    }
+
+    public int getEnemyCells(int index) {
+        return this.index.getInt(index * ReplayRecorder.INDEX_ENTRY_SIZE + 16);
+    }
+
+    public long getMyPopulation(int index) {
+        return this.index.getLong(index * ReplayRecorder.INDEX_ENTRY_SIZE + 20);
+    }
+
+    public long getEnemyPopulation(int index) {
+        return this.index.getLong(index * ReplayRecorder.INDEX_ENTRY_SIZE + 28);
+    }
+
+    // Decode the changed cells and the commands of one turn
+    public void readTurn(int index, ReplayVisitor visitor) {
+        ByteBuffer record = buffer.duplicate();
+        record.position((int) this.index.getLong(index * ReplayRecorder.INDEX_ENTRY_SIZE));
+        for (int i = 0; i < 5; i++) {
+            Varints.getUnsigned(record); // Turn and territory, already in the index
+        }
+
+        long changes = Varints.getUnsigned(record);
+        int cell = -1;
+        for (long i = 0; i < changes; i++) {
+            cell += (int) Varints.getUnsigned(record) + 1;
+            byte owner = record.get();
+            visitor.cellChanged(cell, owner, (int) Varints.getSigned(record));
+        }
+
+        long commands = Varints.getUnsigned(record);
+        for (long i = 0; i < commands; i++) {
+            int from = (int) Varints.getUnsigned(record);
+            int direction = record.get();
+            visitor.command(from, direction, (int) Varints.getUnsigned(record));
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package gridwars.replay;
+
+import cern.ais.gridwars.api.Coordinates;
+import cern.ais.gridwars.api.UniverseView;
+import cern.ais.gridwars.api.bot.PlayerBot;
+import cern.ais.gridwars.api.command.MovementCommand;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Bot decorator that records every turn of the wrapped bot to a compact binary replay file.
+ *
+ * Each turn stores the cells whose owner or population changed since the previous recorded turn, as seen by the
+ * bot, followed by the commands the bot emitted. Cell indices are gaps to the previous changed cell and populations
+ * are deltas, all written as varints, so a turn costs a few bytes per changed cell. Records go through a direct
+ * buffer to a {@link FileChannel}; closing the recorder appends a fixed-size index entry per turn, which lets
+ * {@link ReplayReader} jump to any turn and read the territory of every turn without decoding the records.
+ *
+ * File layout:
+ * <pre>
+ * header:  int magic "GWRP", byte version, int universe size, short name length, UTF-8 bot class name
+ * turn:    varint turn, my cells, enemy cells, my population, enemy population,
+ *          varint change count, per change: varint cell gap, byte owner, zigzag varint population delta,
+ *          varint command count, per command: varint cell, byte direction ordinal, varint amount
+ * index:   per turn: long record offset, int turn, int my cells, int enemy cells, long my population,
+ *          long enemy population
+ * footer:  long index offset, int turn count, byte outcome, int magic "GWRI"
+ * </pre>
+ * Owners are {@link #EMPTY}, {@link #MINE} or {@link #ENEMY}. The outcome is {@link #WON}, {@link #LOST},
+ * {@link #DRAWN} or {@link #UNKNOWN}, as handed to {@link #setOutcome} by whoever ran the match, since the bot never
+ * sees the final board. A file without footer, e.g. from a crashed match, can still be read: the reader then
+ * rebuilds the index by scanning the records, and the outcome is unknown. Version 1 files have no outcome byte.
+ *
+ * Recording happens inside the turn of the bot and adds a scan of the universe to it. If writing fails, recording
+ * stops and the failure is logged through the universe view, so the match itself goes on unaffected.
+ */
+public class ReplayRecorder implements PlayerBot, Closeable {
+    public static final byte EMPTY = 0;
+    public static final byte MINE = 1;
+    public static final byte ENEMY = 2;
+
+    public static final byte UNKNOWN = 0;
+    public static final byte WON = 1;
+    public static final byte LOST = 2;
+    public static final byte DRAWN = 3;
+
+    static final int MAGIC = 0x47575250;
+    static final int INDEX_MAGIC = 0x47575249;
+    static final byte VERSION = 2;
+    static final int INDEX_ENTRY_SIZE = 36;
+    static final int FOOTER_SIZE = 17;
+    static final int VERSION_1_FOOTER_SIZE = 16;
+
+    private final PlayerBot delegate;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+    private boolean failed;
+    private boolean closed;
+    private byte outcome = UNKNOWN;
+
+    private int universeSize = -1;
+    private byte[] owners;
+    private int[] populations;
+    private int[] changedCells;
+    private byte[] changedOwners;
+    private int[] changedPopulations;
+
+    // Index entries kept until the recorder is closed
+    private long[] offsets = new long[256];
+    private int[] turns = new int[256];
+    private int[] cellCounts = new int[512];
+    private long[] populationCounts = new long[512];
+    private int turnCount;
+
+    public ReplayRecorder(PlayerBot delegate, Path file) throws IOException {
+        this.delegate = delegate;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    public PlayerBot getDelegate() {
+        return delegate;
+    }
+
+    // Outcome of the match for the recorded bot, written into the footer on close
+    public void setOutcome(byte outcome) {
+        this.outcome = outcome;
+    }
+
+    @Override
+    public void getNextCommands(UniverseView universeView, List<MovementCommand> commandList) {
+        delegate.getNextCommands(universeView, commandList);
+        if (failed || closed) {
+            return;
+        }
+        try {
+            recordTurn(universeView, commandList);
+        } catch (IOException | RuntimeException e) {
+            failed = true;
+            universeView.log("Replay recording stopped: " + e);
+        }
+    }
+
+    private void recordTurn(UniverseView universeView, List<MovementCommand> commandList) throws IOException {
+        int size = universeView.getUniverseSize();
+        if (universeSize < 0) {
+            writeHeader(size);
+        } else if (size != universeSize) {
+            throw new IOException("Universe size changed from " + universeSize + " to " + size);
+        }
+
+        int changedCount = 0;
+        int myCells = 0;
+        int enemyCells = 0;
+        long myPopulation = 0;
+        long enemyPopulation = 0;
+        int cell = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++, cell++) {
+                byte owner = EMPTY;
+                int population = 0;
+                if (!universeView.isEmpty(x, y)) {
+                    population = universeView.getPopulation(x, y);
+                    if (universeView.belongsToMe(x, y)) {
+                        owner = MINE;
+                        myCells++;
+                        myPopulation += population;
+                    } else {
+                        owner = ENEMY;
+                        enemyCells++;
+                        enemyPopulation += population;
+                    }
+                }
+                if (owner != owners[cell] || population != populations[cell]) {
+                    changedCells[changedCount] = cell;
+                    changedOwners[changedCount] = owner;
+                    changedPopulations[changedCount] = population;
+                    changedCount++;
+                }
+            }
+        }
+
+        addIndexEntry(position(), universeView.getCurrentTurn(), myCells, enemyCells, myPopulation, enemyPopulation);
+        putVarint(universeView.getCurrentTurn());
+        putVarint(myCells);
+        putVarint(enemyCells);
+        putVarint(myPopulation);
+        putVarint(enemyPopulation);
+
+        putVarint(changedCount);
+        int previous = -1;
+        for (int i = 0; i < changedCount; i++) {
+            int changed = changedCells[i];
+            byte owner = changedOwners[i];
+            int population = changedPopulations[i];
+
+            putVarint(changed - previous - 1);
+            ensure(1);
+            buffer.put(owner);
+            ensure(Varints.MAX_LENGTH);
+            Varints.putSigned(buffer, population - populations[changed]);
+            owners[changed] = owner;
+            populations[changed] = population;
+            previous = changed;
+        }
+
+        int commandCount = 0;
+        for (MovementCommand command : commandList) {
+            if (isRecordable(command)) {
+                commandCount++;
+            }
+        }
+        putVarint(commandCount);
+        for (MovementCommand command : commandList) {
+            if (isRecordable(command)) {
+                Coordinates from = command.getCoordinatesFrom();
+                putVarint(Math.floorMod(from.getY(), size) * size + Math.floorMod(from.getX(), size));
+                ensure(1);
+                buffer.put((byte) command.getDirection().ordinal());
+                putVarint(command.getAmount());
+            }
+        }
+    }
+
+    // Commands without source or direction void the turn in the game and cannot be encoded, so they are left out
+    private static boolean isRecordable(MovementCommand command) {
+        return command != null && command.getCoordinatesFrom() != null && command.getDirection() != null;
+    }
+
+    private void writeHeader(int size) throws IOException {
+        universeSize = size;
+        owners = new byte[size * size];
+        populations = new int[size * size];
+        changedCells = new int[size * size];
+        changedOwners = new byte[size * size];
+        changedPopulations = new int[size * size];
+
+        byte[] name = delegate.getClass().getName().getBytes(StandardCharsets.UTF_8);
+        ensure(11 + name.length);
+        buffer.putInt(MAGIC);
+        buffer.put(VERSION);
+        buffer.putInt(size);
+        buffer.putShort((short) name.length);
+        buffer.put(name);
+    }
+
+    private void addIndexEntry(long offset, int turn, int myCells, int enemyCells, long myPopulation, long enemyPopulation) {
+        if (turnCount == offsets.length) {
+            offsets = Arrays.copyOf(offsets, turnCount * 2);
+            turns = Arrays.copyOf(turns, turnCount * 2);
+            cellCounts = Arrays.copyOf(cellCounts, turnCount * 4);
+            populationCounts = Arrays.copyOf(populationCounts, turnCount * 4);
+        }
+        offsets[turnCount] = offset;
+        turns[turnCount] = turn;
+        cellCounts[turnCount * 2] = myCells;
+        cellCounts[turnCount * 2 + 1] = enemyCells;
+        populationCounts[turnCount * 2] = myPopulation;
+        populationCounts[turnCount * 2 + 1] = enemyPopulation;
+        turnCount++;
+    }
+
+    private void putVarint(long value) throws IOException {
+        ensure(Varints.MAX_LENGTH);
+        Varints.putUnsigned(buffer, value);
+    }
+
+    // File offset of the next byte written
+    private long position() throws IOException {
+        return channel.position() + buffer.position();
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Appends the turn index and footer; a recorder that never saw a turn leaves an empty file
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (universeSize >= 0 && !failed) {
+                long indexOffset = position();
+                for (int i = 0; i < turnCount; i++) {
+                    ensure(INDEX_ENTRY_SIZE);
+                    buffer.putLong(offsets[i]);
+                    buffer.putInt(turns[i]);
+                    buffer.putInt(cellCounts[i * 2]);
+                    buffer.putInt(cellCounts[i * 2 + 1]);
+                    buffer.putLong(populationCounts[i * 2]);
+                    buffer.putLong(populationCounts[i * 2 + 1]);
+                }
+                ensure(FOOTER_SIZE);
+                buffer.putLong(indexOffset);
+                buffer.putInt(turnCount);
+                buffer.put(outcome);
+                buffer.putInt(INDEX_MAGIC);
+            }
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package gridwars.replay;
+
+/**
+ * Receives the decoded contents of one recorded turn, see {@link ReplayReader#readTurn(int, ReplayVisitor)}.
+ */
+public interface ReplayVisitor {
+
+    // Owner and population change of a cell since the previous recorded turn, in increasing cell order
+    default void cellChanged(int cell, byte owner, int populationDelta) {
+    }
+
+    default void command(int cell, int directionIndex, int amount) {
+    }
+}
@@ -0,0 +1,57 @@
+package gridwars.search;
+
+import gridwars.simulator.GameState;
+
+import java.util.Arrays;
+
+/**
+ * Movements of one simulated turn as parallel primitive arrays of source cell, direction ordinal and amount.
+ *
+ * A buffer is cleared and refilled for every turn of a rollout, so after the first few turns it no longer
+ * allocates.
+ */
+public class MoveBuffer {
+    private int[] cells = new int[64];
+    private int[] directions = new int[64];
+    private int[] amounts = new int[64];
+    private int count;
+
+    public void clear() {
+        count = 0;
+    }
+
+    public void add(int cell, int directionIndex, int amount) {
+        if (amount <= 0) {
+            return;
+        }
+        if (count == cells.length) {
+            cells = Arrays.copyOf(cells, count * 2);
+            directions = Arrays.copyOf(directions, count * 2);
+            amounts = Arrays.copyOf(amounts, count * 2);
+        }
+        cells[count] = cell;
+        directions[count] = directionIndex;
+        amounts[count] = amount;
+        count++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getCell(int i) {
+        return cells[i];
+    }
+
+    public int getDirection(int i) {
+        return directions[i];
+    }
+
+    public int getAmount(int i) {
+        return amounts[i];
+    }
+
+    public boolean applyTo(GameState state, byte player) {
+        return state.applyMovements(player, cells, directions, amounts, count);
+    }
+}
@@ -0,0 +1,221 @@
+package gridwars.search;
+
+import gridwars.simulator.GameState;
+import gridwars.utils.BoardSnapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Monte Carlo search over candidate whole-turn plans.
+ *
+ * Every rollout copies the current board into a {@link GameState} and plays a few rounds ahead: the bot follows one
+ * candidate plan for the whole horizon while the enemy follows a randomly picked candidate, and the board grows after
+ * every round. The rollout is scored by the population and cell difference at the end, and the plan with the best
+ * mean score wins. Rollouts are dealt round robin over the plans, so every plan gets about the same share of them.
+ *
+ * Rollouts run on one worker per thread of the pool until the rollout budget is used up or the search deadline
+ * passes, so the number of rollouts, and with it the quality of the scores, grows with the cores available. Every
+ * worker keeps its own game state and move buffer, which are reused across rollouts and turns; the arrays are only
+ * reallocated when the universe size changes.
+ */
+public class PlanSearch {
+    private final ForkJoinPool pool;
+    private final int horizon;
+    private final List<String> planNames = new ArrayList<>();
+    private final List<TurnPlan> plans = new ArrayList<>();
+    private int maxRollouts = Integer.MAX_VALUE;
+    private int cellWeight = 10; // Score of an owned cell in units of population
+
+    private GameState root;
+    private Worker[] workers = new Worker[0];
+    private final AtomicInteger nextRollout = new AtomicInteger();
+    private double growthRate;
+    private int maximumPopulation;
+    private long endNanos;
+
+    private double[] scores = new double[0];
+    private int[] rolloutsPerPlan = new int[0];
+    private int lastRollouts;
+
+    // Run workers on the given pool; a null pool runs all rollouts on the calling thread
+    public PlanSearch(ForkJoinPool pool, int horizon) {
+        this.pool = pool;
+        this.horizon = horizon;
+    }
+
+    public PlanSearch(int horizon) {
+        this(ForkJoinPool.commonPool(), horizon);
+    }
+
+    public PlanSearch addPlan(String name, TurnPlan plan) {
+        planNames.add(name);
+        plans.add(plan);
+        return this;
+    }
+
+    public PlanSearch addDefaultPlans() {
+        return addPlan("expand-heavy", TurnPlans.expandHeavy(0.8))
+                .addPlan("attack-weakest", TurnPlans.attackWeakest(0.6))
+                .addPlan("consolidate", TurnPlans.consolidate(0.3));
+    }
+
+    public PlanSearch setMaxRollouts(int maxRollouts) {
+        this.maxRollouts = maxRollouts;
+        return this;
+    }
+
+    public PlanSearch setCellWeight(int cellWeight) {
+        this.cellWeight = cellWeight;
+        return this;
+    }
+
+    /**
+     * Scores all plans for the bot owning the board until the rollout budget is used or the given
+     * {@link System#nanoTime()} has passed, and returns the index of the best plan.
+     */
+    public int search(BoardSnapshot board, double growthRate, int maximumPopulation, long endNanos) {
+        if (root == null || root.getUniverseSize() != board.getUniverseSize()) {
+            root = new GameState(board);
+            workers = new Worker[0];
+        }
+        int workerCount = pool == null ? 1 : pool.getParallelism();
+        if (workers.length != workerCount || scores.length != plans.size()) {
+            workers = new Worker[workerCount];
+            for (int i = 0; i < workerCount; i++) {
+                workers[i] = new Worker(i);
+            }
+            scores = new double[plans.size()];
+            rolloutsPerPlan = new int[plans.size()];
+        }
+
+        root.copyFrom(board);
+        this.growthRate = growthRate;
+        this.maximumPopulation = maximumPopulation;
+        this.endNanos = endNanos;
+        nextRollout.set(0);
+
+        if (pool == null) {
+            workers[0].run();
+        } else {
+            pool.invoke(new WorkerRange(0, workers.length));
+        }
+        return collectScores();
+    }
+
+    private int collectScores() {
+        int best = 0;
+        lastRollouts = 0;
+        for (int plan = 0; plan < plans.size(); plan++) {
+            double sum = 0;
+            int count = 0;
+            for (Worker worker : workers) {
+                sum += worker.scoreSums[plan];
+                count += worker.rolloutCounts[plan];
+            }
+            rolloutsPerPlan[plan] = count;
+            scores[plan] = count == 0 ? Double.NEGATIVE_INFINITY : sum / count;
+            lastRollouts += count;
+            if (scores[plan] > scores[best]) {
+                best = plan;
+            }
+        }
+        return best;
+    }
+
+    // Moves of the given plan for the board of the last search, from the point of view of the bot
+    public void planRoot(int plan, Random random, MoveBuffer moves) {
+        moves.clear();
+        plans.get(plan).plan(root, GameState.PLAYER1, random, moves);
+    }
+
+    public int getPlanCount() {
+        return plans.size();
+    }
+
+    public String getPlanName(int plan) {
+        return planNames.get(plan);
+    }
+
+    // Mean rollout score of the plan in the last search
+    public double getScore(int plan) {
+        return scores[plan];
+    }
+
+    public int getRollouts(int plan) {
+        return rolloutsPerPlan[plan];
+    }
+
+    // Rollouts of all plans in the last search
+    public int getLastRollouts() {
+        return lastRollouts;
+    }
+
+    private class Worker {
+        final GameState state = new GameState(root);
+        final MoveBuffer moves = new MoveBuffer();
+        final Random random;
+        final double[] scoreSums = new double[plans.size()];
+        final int[] rolloutCounts = new int[plans.size()];
+
+        Worker(int index) {
+            random = new Random(index * 0x9E3779B97F4A7C15L);
+        }
+
+        void run() {
+            Arrays.fill(scoreSums, 0);
+            Arrays.fill(rolloutCounts, 0);
+            while (System.nanoTime() < endNanos) {
+                int rollout = nextRollout.getAndIncrement();
+                if (rollout >= maxRollouts) {
+                    return;
+                }
+                int plan = rollout % plans.size();
+                scoreSums[plan] += rollout(plans.get(plan), plans.get(random.nextInt(plans.size())));
+                rolloutCounts[plan]++;
+            }
+        }
+
+        private long rollout(TurnPlan myPlan, TurnPlan enemyPlan) {
+            state.copyFrom(root);
+            for (int round = 0; round < horizon; round++) {
+                moves.clear();
+                myPlan.plan(state, GameState.PLAYER1, random, moves);
+                moves.applyTo(state, GameState.PLAYER1);
+                moves.clear();
+                enemyPlan.plan(state, GameState.PLAYER2, random, moves);
+                moves.applyTo(state, GameState.PLAYER2);
+                state.grow(growthRate, maximumPopulation);
+            }
+            return state.countPopulation(GameState.PLAYER1) - state.countPopulation(GameState.PLAYER2)
+                    + (long) cellWeight * (state.countCells(GameState.PLAYER1) - state.countCells(GameState.PLAYER2));
+        }
+    }
+
+    private class WorkerRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+
+        WorkerRange(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                workers[from].run();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new WorkerRange(from, middle), new WorkerRange(middle, to));
+        }
+    }
+}
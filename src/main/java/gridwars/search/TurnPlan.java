@@ -0,0 +1,15 @@
+package gridwars.search;
+
+import gridwars.simulator.GameState;
+
+import java.util.Random;
+
+/**
+ * Policy that produces the movements of one whole turn of a player.
+ *
+ * A plan is applied again on every turn of a rollout, so it must only read the given state and write to the buffer.
+ * Plans are shared by all search workers and must not keep mutable state of their own.
+ */
+public interface TurnPlan {
+    void plan(GameState state, byte player, Random random, MoveBuffer moves);
+}
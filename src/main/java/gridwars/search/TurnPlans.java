@@ -0,0 +1,91 @@
+package gridwars.search;
+
+import gridwars.simulator.GameState;
+import gridwars.utils.BoardSnapshot;
+import gridwars.utils.DirectionSet;
+
+/**
+ * Candidate whole-turn plans for {@link PlanSearch}. Only cells with a neighbour the player does not own move, like
+ * the border decisions of the bots.
+ */
+public final class TurnPlans {
+
+    private TurnPlans() {
+    }
+
+    // Every cell next to an empty cell sends the given fraction of its population into one of them
+    public static TurnPlan expandHeavy(double fraction) {
+        return (state, player, random, moves) -> {
+            for (int cell = 0; cell < state.getCellCount(); cell++) {
+                if (state.getOwner(cell) == player) {
+                    int empty = neighborsOwnedBy(state, cell, GameState.NOBODY);
+                    if (!DirectionSet.isEmpty(empty)) {
+                        moves.add(cell, DirectionSet.random(empty, random).ordinal(), (int) (state.getPopulation(cell) * fraction));
+                    }
+                }
+            }
+        };
+    }
+
+    // Cells next to an enemy hit its weakest neighbour when the attack wins it, the others expand
+    public static TurnPlan attackWeakest(double fraction) {
+        return (state, player, random, moves) -> {
+            byte enemy = opponent(player);
+            for (int cell = 0; cell < state.getCellCount(); cell++) {
+                if (state.getOwner(cell) != player) {
+                    continue;
+                }
+                int amount = (int) (state.getPopulation(cell) * fraction);
+                int weakest = -1;
+                int weakestPopulation = Integer.MAX_VALUE;
+                for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+                    int neighbor = state.getNeighbor(cell, d);
+                    if (state.getOwner(neighbor) == enemy && state.getPopulation(neighbor) < weakestPopulation) {
+                        weakest = d;
+                        weakestPopulation = state.getPopulation(neighbor);
+                    }
+                }
+
+                if (weakest >= 0) {
+                    if (amount > weakestPopulation) {
+                        moves.add(cell, weakest, amount);
+                    }
+                } else {
+                    int empty = neighborsOwnedBy(state, cell, GameState.NOBODY);
+                    if (!DirectionSet.isEmpty(empty)) {
+                        moves.add(cell, DirectionSet.random(empty, random).ordinal(), amount);
+                    }
+                }
+            }
+        };
+    }
+
+    // Cells next to an enemy hold their population to grow, cells away from the enemy expand with the given fraction
+    public static TurnPlan consolidate(double fraction) {
+        return (state, player, random, moves) -> {
+            byte enemy = opponent(player);
+            for (int cell = 0; cell < state.getCellCount(); cell++) {
+                if (state.getOwner(cell) == player && DirectionSet.isEmpty(neighborsOwnedBy(state, cell, enemy))) {
+                    int empty = neighborsOwnedBy(state, cell, GameState.NOBODY);
+                    if (!DirectionSet.isEmpty(empty)) {
+                        moves.add(cell, DirectionSet.random(empty, random).ordinal(), (int) (state.getPopulation(cell) * fraction));
+                    }
+                }
+            }
+        };
+    }
+
+    static byte opponent(byte player) {
+        return player == GameState.PLAYER1 ? GameState.PLAYER2 : GameState.PLAYER1;
+    }
+
+    private static int neighborsOwnedBy(GameState state, int cell, byte owner) {
+        int directions = DirectionSet.NONE;
+        for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+            if (state.getOwner(state.getNeighbor(cell, d)) == owner) {
+                directions = DirectionSet.add(directions, d);
+            }
+        }
+        return directions;
+    }
+}
@@ -0,0 +1,49 @@
+package gridwars.simulator;
+
+import cern.ais.gridwars.api.command.MovementCommand;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * Command list handed to a bot when the turn timeout is enforced. Like the game server, it keeps the commands that
+ * were added before the deadline and silently ignores any that come later, so a slow turn loses its late moves
+ * instead of being voided. Replacing or removing commands is not restricted.
+ */
+public class DeadlineCommandList extends ArrayList<MovementCommand> {
+    private static final long serialVersionUID = 1L;
+
+    private long deadline = Long.MAX_VALUE;
+
+    // Clear the list for a new turn whose commands count until the given System.nanoTime()
+    public void startTurn(long deadline) {
+        clear();
+        this.deadline = deadline;
+    }
+
+    private boolean expired() {
+        return System.nanoTime() - deadline > 0;
+    }
+
+    @Override
+    public boolean add(MovementCommand command) {
+        return !expired() && super.add(command);
+    }
+
+    @Override
+    public void add(int index, MovementCommand command) {
+        if (!expired()) {
+            super.add(index, command);
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends MovementCommand> commands) {
+        return !expired() && super.addAll(commands);
+    }
+
+    @Override
+    public boolean addAll(int index, Collection<? extends MovementCommand> commands) {
+        return !expired() && super.addAll(index, commands);
+    }
+}
@@ -0,0 +1,79 @@
+package gridwars.simulator;
+
+import cern.ais.gridwars.api.bot.PlayerBot;
+import gridwars.tournament.MatchEngine;
+import gridwars.tournament.MatchResult;
+
+/**
+ * Headless, in-process replacement of the game emulator. Plays {@link PlayerBot}s against each other on
+ * primitive arrays, without UI or log output, either to the end with {@link #playMatch} or turn by turn through
+ * {@link #newMatch}.
+ *
+ * The default settings follow the competition rules: a 50x50 universe, 100 starting troops, 10% growth per round,
+ * at most 100 troops per cell, 2000 rounds and a turn timeout of 50 ms. The simulator itself holds no match state,
+ * so one instance can serve any number of threads.
+ */
+public class GameSimulator implements MatchEngine {
+    private final int universeSize;
+    private final int startPopulation;
+    private final double growthRate;
+    private final int maximumPopulation;
+    private final int roundLimit;
+    private final int turnTimeOutInMilliseconds;
+    private final boolean enforceTimeout;
+
+    public GameSimulator() {
+        this(50, 100, 1.1, 100, 2000, 50, false);
+    }
+
+    public GameSimulator(int universeSize, int startPopulation, double growthRate, int maximumPopulation,
+                         int roundLimit, int turnTimeOutInMilliseconds, boolean enforceTimeout) {
+        this.universeSize = universeSize;
+        this.startPopulation = startPopulation;
+        this.growthRate = growthRate;
+        this.maximumPopulation = maximumPopulation;
+        this.roundLimit = roundLimit;
+        this.turnTimeOutInMilliseconds = turnTimeOutInMilliseconds;
+        this.enforceTimeout = enforceTimeout;
+    }
+
+    public Match newMatch(PlayerBot bot1, PlayerBot bot2, long seed) {
+        return new Match(this, bot1, bot2, seed);
+    }
+
+    @Override
+    public MatchResult playMatch(PlayerBot bot1, PlayerBot bot2, long seed) {
+        Match match = newMatch(bot1, bot2, seed);
+        match.play();
+        return match.toResult();
+    }
+
+    public int getUniverseSize() {
+        return universeSize;
+    }
+
+    public int getStartPopulation() {
+        return startPopulation;
+    }
+
+    public double getGrowthRate() {
+        return growthRate;
+    }
+
+    public int getMaximumPopulation() {
+        return maximumPopulation;
+    }
+
+    public int getRoundLimit() {
+        return roundLimit;
+    }
+
+    public int getTurnTimeOutInMilliseconds() {
+        return turnTimeOutInMilliseconds;
+    }
+
+    // Whether commands added after the turn timeout are ignored; off by default to keep results reproducible
+    public boolean isEnforceTimeout() {
+        return enforceTimeout;
+    }
+}
@@ -0,0 +1,251 @@
+package gridwars.simulator;
+
+import cern.ais.gridwars.api.Coordinates;
+import cern.ais.gridwars.api.command.MovementCommand;
+import gridwars.utils.BoardSnapshot;
+
+import java.util.List;
+
+/**
+ * Ownership and population of every cell of a simulated universe, with the movement, battle and growth rules of
+ * the game:
+ * <ul>
+ *     <li>Troops move to one of the four neighbours, population merges with troops already owned there.</li>
+ *     <li>Troops that move into an enemy cell fight after the movements of the turn: the bigger side wins and keeps
+ *     the difference, an even fight leaves the cell empty.</li>
+ *     <li>After every round (one turn per player) the population of every cell grows by the growth rate, rounded to
+ *     the nearest integer and truncated to the maximum population.</li>
+ * </ul>
+ */
+public class GameState {
+    public static final byte NOBODY = 0;
+    public static final byte PLAYER1 = 1;
+    public static final byte PLAYER2 = 2;
+
+    private static final MovementCommand.Direction[] DIRECTIONS = MovementCommand.Direction.values();
+
+    private final int universeSize;
+    private final int cellCount;
+    private final byte[] owners;
+    private final int[] populations;
+    private final int[] neighbors;
+    private final SimulatedCoordinates[] coordinates;
+
+    // Scratch space for applying movements, reused every turn; only the listed cells are non-zero
+    private final int[] outflow;
+    private final int[] inflow;
+    private final int[] sources;
+    private final int[] targets;
+    private int sourceCount;
+    private int targetCount;
+
+    public GameState(int universeSize) {
+        this(universeSize, SimulatedCoordinates.grid(universeSize), null);
+    }
+
+    // Empty state that shares the immutable geometry of the template, for cheap copies of a running game
+    public GameState(GameState template) {
+        this(template.universeSize, template.coordinates, template.neighbors);
+    }
+
+    // State with the neighbour tables of a bot's snapshot, so directions behave exactly as in the real universe
+    public GameState(BoardSnapshot board) {
+        this(board.getUniverseSize(), SimulatedCoordinates.grid(board.getUniverseSize()), snapshotNeighbors(board));
+    }
+
+    private GameState(int universeSize, SimulatedCoordinates[] coordinates, int[] neighbors) {
+        this.universeSize = universeSize;
+        this.coordinates = coordinates;
+        cellCount = universeSize * universeSize;
+        owners = new byte[cellCount];
+        populations = new int[cellCount];
+        outflow = new int[cellCount];
+        inflow = new int[cellCount];
+        sources = new int[cellCount];
+        targets = new int[cellCount];
+
+        if (neighbors == null) {
+            neighbors = new int[cellCount * DIRECTIONS.length];
+            for (int cell = 0; cell < cellCount; cell++) {
+                for (MovementCommand.Direction direction : DIRECTIONS) {
+                    neighbors[cell * DIRECTIONS.length + direction.ordinal()] =
+                            ((SimulatedCoordinates) coordinates[cell].getNeighbour(direction)).getIndex();
+                }
+            }
+        }
+        this.neighbors = neighbors;
+    }
+
+    // Overwrite ownership and population with those of another state of the same universe
+    public void copyFrom(GameState other) {
+        System.arraycopy(other.owners, 0, owners, 0, cellCount);
+        System.arraycopy(other.populations, 0, populations, 0, cellCount);
+    }
+
+    // Load a bot's view of the board, the bot becoming PLAYER1 and its enemy PLAYER2
+    public void copyFrom(BoardSnapshot board) {
+        for (int cell = 0; cell < cellCount; cell++) {
+            byte owner = board.getOwner(cell);
+            owners[cell] = owner == BoardSnapshot.MINE ? PLAYER1 : owner == BoardSnapshot.ENEMY ? PLAYER2 : NOBODY;
+            populations[cell] = board.getPopulation(cell);
+        }
+    }
+
+    private static int[] snapshotNeighbors(BoardSnapshot board) {
+        int[] neighbors = new int[board.getCellCount() * DIRECTIONS.length];
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                neighbors[cell * DIRECTIONS.length + d] = board.getNeighbor(cell, d);
+            }
+        }
+        return neighbors;
+    }
+
+    public int getUniverseSize() {
+        return universeSize;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    public byte getOwner(int cell) {
+        return owners[cell];
+    }
+
+    public int getPopulation(int cell) {
+        return populations[cell];
+    }
+
+    public SimulatedCoordinates getCoordinates(int cell) {
+        return coordinates[cell];
+    }
+
+    // Neighbour of the cell in the direction with the given ordinal
+    public int getNeighbor(int cell, int directionIndex) {
+        return neighbors[cell * DIRECTIONS.length + directionIndex];
+    }
+
+    public int indexOf(int x, int y) {
+        return Math.floorMod(y, universeSize) * universeSize + Math.floorMod(x, universeSize);
+    }
+
+    public void place(int cell, byte player, int population) {
+        owners[cell] = population > 0 ? player : NOBODY;
+        populations[cell] = population;
+    }
+
+    public int countCells(byte player) {
+        int count = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (owners[cell] == player) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public long countPopulation(byte player) {
+        long total = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (owners[cell] == player) {
+                total += populations[cell];
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Applies all movement commands of one player's turn. Like in the game engine, a single invalid command (moving
+     * from a cell of somebody else, a negative amount or more troops than a cell holds) voids the whole turn.
+     *
+     * @return false if the commands were invalid and nothing was applied
+     */
+    public boolean applyMovements(byte player, List<MovementCommand> commands) {
+        for (MovementCommand command : commands) {
+            Coordinates from = command.getCoordinatesFrom();
+            if (from == null || command.getDirection() == null
+                    || !addMovement(player, indexOf(from.getX(), from.getY()), command.getDirection().ordinal(), command.getAmount())) {
+                discardMovements();
+                return false;
+            }
+        }
+        commitMovements(player);
+        return true;
+    }
+
+    /**
+     * Same as {@link #applyMovements(byte, List)} for movements given as parallel arrays of source cell, direction
+     * ordinal and amount, which lets search code simulate turns without creating command objects.
+     */
+    public boolean applyMovements(byte player, int[] cells, int[] directions, int[] amounts, int count) {
+        for (int i = 0; i < count; i++) {
+            if (!addMovement(player, cells[i], directions[i], amounts[i])) {
+                discardMovements();
+                return false;
+            }
+        }
+        commitMovements(player);
+        return true;
+    }
+
+    private boolean addMovement(byte player, int cell, int direction, int amount) {
+        if (amount < 0 || owners[cell] != player || outflow[cell] + amount > populations[cell]) {
+            return false;
+        }
+        if (amount == 0) {
+            return true;
+        }
+        if (outflow[cell] == 0) {
+            sources[sourceCount++] = cell;
+        }
+        outflow[cell] += amount;
+
+        int target = neighbors[cell * DIRECTIONS.length + direction];
+        if (inflow[target] == 0) {
+            targets[targetCount++] = target;
+        }
+        inflow[target] += amount;
+        return true;
+    }
+
+    private void discardMovements() {
+        for (int i = 0; i < sourceCount; i++) {
+            outflow[sources[i]] = 0;
+        }
+        for (int i = 0; i < targetCount; i++) {
+            inflow[targets[i]] = 0;
+        }
+        sourceCount = 0;
+        targetCount = 0;
+    }
+
+    private void commitMovements(byte player) {
+        for (int i = 0; i < sourceCount; i++) {
+            int cell = sources[i];
+            place(cell, player, populations[cell] - outflow[cell]);
+        }
+
+        for (int i = 0; i < targetCount; i++) {
+            int cell = targets[i];
+            int arriving = inflow[cell];
+            if (owners[cell] == NOBODY || owners[cell] == player) {
+                place(cell, player, populations[cell] + arriving);
+            } else if (arriving > populations[cell]) {
+                place(cell, player, arriving - populations[cell]);
+            } else {
+                place(cell, owners[cell], populations[cell] - arriving);
+            }
+        }
+        discardMovements();
+    }
+
+    // End of round growth, rounding half up and truncating to the maximum population
+    public void grow(double growthRate, int maximumPopulation) {
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (populations[cell] > 0) {
+                populations[cell] = (int) Math.min(maximumPopulation, Math.round(populations[cell] * growthRate));
+            }
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package gridwars.simulator;
+
+import cern.ais.gridwars.api.bot.PlayerBot;
+import gridwars.tournament.MatchResult;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single simulated match that can be played to the end or stepped turn by turn.
+ *
+ * The players take alternating turns, player 1 first. A turn whose commands are invalid or that throws is skipped.
+ * When the simulator enforces the turn timeout, commands a bot adds after the timeout are ignored and the ones added
+ * before it are played, as on the game server. The match ends when a player has no cells left, or after the round
+ * limit with the higher total population winning.
+ */
+public class Match {
+    private final GameSimulator simulator;
+    private final GameState state;
+    private final PlayerBot[] bots;
+    private final long seed;
+    private final DeadlineCommandList commandList = new DeadlineCommandList();
+
+    private int turn;
+    private int winner = -1;
+    private final int[] skippedTurns = new int[3];
+    private final String[] firstExceptions = new String[3];
+
+    Match(GameSimulator simulator, PlayerBot bot1, PlayerBot bot2, long seed) {
+        this.simulator = simulator;
+        this.state = new GameState(simulator.getUniverseSize());
+        this.bots = new PlayerBot[]{null, bot1, bot2};
+        this.seed = seed;
+
+        // Both bots start on a different random cell
+        Random random = new Random(seed);
+        int start1 = random.nextInt(state.getCellCount());
+        int start2 = random.nextInt(state.getCellCount() - 1);
+        if (start2 >= start1) {
+            start2++;
+        }
+        state.place(start1, GameState.PLAYER1, simulator.getStartPopulation());
+        state.place(start2, GameState.PLAYER2, simulator.getStartPopulation());
+    }
+
+    public GameState getState() {
+        return state;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    // Number of turns played so far, counting the turns of both players
+    public int getTurn() {
+        return turn;
+    }
+
+    public boolean isFinished() {
+        return winner >= 0;
+    }
+
+    // MatchResult.BOT1, BOT2 or DRAW, or -1 while the match is running
+    public int getWinner() {
+        return winner;
+    }
+
+    // Turns of the given player that were skipped because of invalid commands or exceptions
+    public int getSkippedTurns(byte player) {
+        return skippedTurns[player];
+    }
+
+    // Class of the first exception the given player threw, or null if it threw none
+    public String getFirstException(byte player) {
+        return firstExceptions[player];
+    }
+
+    // The player whose turn is next
+    public byte getCurrentPlayer() {
+        return turn % 2 == 0 ? GameState.PLAYER1 : GameState.PLAYER2;
+    }
+
+    /**
+     * Plays the next turn.
+     *
+     * @return false once the match is finished
+     */
+    public boolean step() {
+        if (isFinished()) {
+            return false;
+        }
+
+        byte player = getCurrentPlayer();
+        long deadline = simulator.isEnforceTimeout()
+                ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(simulator.getTurnTimeOutInMilliseconds())
+                : Long.MAX_VALUE;
+        commandList.startTurn(deadline);
+        SimulatedUniverseView universeView = new SimulatedUniverseView(state, player, simulator, turn);
+
+        boolean valid;
+        try {
+            bots[player].getNextCommands(universeView, commandList);
+            valid = state.applyMovements(player, commandList);
+        } catch (RuntimeException e) {
+            valid = false;
+            if (firstExceptions[player] == null) {
+                firstExceptions[player] = e.getClass().getName();
+            }
+        }
+        if (!valid) {
+            skippedTurns[player]++;
+        }
+
+        turn++;
+        if (turn % 2 == 0) {
+            state.grow(simulator.getGrowthRate(), simulator.getMaximumPopulation());
+        }
+
+        updateWinner();
+        return !isFinished();
+    }
+
+    public void play() {
+        while (step()) {
+            // Keep playing until there is a winner or the round limit is reached
+        }
+    }
+
+    private void updateWinner() {
+        int cells1 = state.countCells(GameState.PLAYER1);
+        int cells2 = state.countCells(GameState.PLAYER2);
+        if (cells1 == 0 || cells2 == 0) {
+            winner = cells1 > 0 ? MatchResult.BOT1 : cells2 > 0 ? MatchResult.BOT2 : MatchResult.DRAW;
+        } else if (turn >= simulator.getRoundLimit() * 2) {
+            long population1 = state.countPopulation(GameState.PLAYER1);
+            long population2 = state.countPopulation(GameState.PLAYER2);
+            winner = population1 > population2 ? MatchResult.BOT1
+                    : population2 > population1 ? MatchResult.BOT2 : MatchResult.DRAW;
+        }
+    }
+
+    public MatchResult toResult() {
+        return new MatchResult(bots[1].getClass().getSimpleName(), bots[2].getClass().getSimpleName(), seed,
+                Math.max(winner, MatchResult.DRAW), turn,
+                state.countCells(GameState.PLAYER1), state.countCells(GameState.PLAYER2),
+                state.countPopulation(GameState.PLAYER1), state.countPopulation(GameState.PLAYER2), 0,
+                skippedTurns[GameState.PLAYER1], skippedTurns[GameState.PLAYER2],
+                firstExceptions[GameState.PLAYER1], firstExceptions[GameState.PLAYER2]);
+    }
+}
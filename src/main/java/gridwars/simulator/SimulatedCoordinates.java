@@ -0,0 +1,132 @@
+package gridwars.simulator;
+
+import cern.ais.gridwars.api.Coordinates;
+import cern.ais.gridwars.api.command.MovementCommand;
+
+/**
+ * Coordinates of the simulated universe. All instances of a universe are created once by {@link #grid(int)}, and
+ * relative positions are looked up in that grid, so moving around the torus never allocates.
+ *
+ * Like the game engine, {@code UP} decreases and {@code DOWN} increases the y coordinate.
+ */
+public final class SimulatedCoordinates implements Coordinates {
+    private final int x;
+    private final int y;
+    private final SimulatedCoordinates[] grid;
+    private final int universeSize;
+
+    private SimulatedCoordinates(int x, int y, SimulatedCoordinates[] grid, int universeSize) {
+        this.x = x;
+        this.y = y;
+        this.grid = grid;
+        this.universeSize = universeSize;
+    }
+
+    // All coordinates of a universe, indexed by y * universeSize + x
+    public static SimulatedCoordinates[] grid(int universeSize) {
+        SimulatedCoordinates[] grid = new SimulatedCoordinates[universeSize * universeSize];
+        for (int i = 0; i < grid.length; i++) {
+            grid[i] = new SimulatedCoordinates(i % universeSize, i / universeSize, grid, universeSize);
+        }
+        return grid;
+    }
+
+    private Coordinates at(int newX, int newY) {
+        return grid[Math.floorMod(newY, universeSize) * universeSize + Math.floorMod(newX, universeSize)];
+    }
+
+    public int getIndex() {
+        return y * universeSize + x;
+    }
+
+    @Override
+    public int getX() {
+        return x;
+    }
+
+    @Override
+    public int getY() {
+        return y;
+    }
+
+    @Override
+    public Coordinates getRelative(int distance, MovementCommand.Direction direction) {
+        switch (direction) {
+            case UP:
+                return at(x, y - distance);
+            case DOWN:
+                return at(x, y + distance);
+            case LEFT:
+                return at(x - distance, y);
+            default:
+                return at(x + distance, y);
+        }
+    }
+
+    @Override
+    public Coordinates getNeighbour(MovementCommand.Direction direction) {
+        return getRelative(1, direction);
+    }
+
+    @Override
+    public Coordinates getLeft(int distance) {
+        return at(x - distance, y);
+    }
+
+    @Override
+    public Coordinates getLeft() {
+        return getLeft(1);
+    }
+
+    @Override
+    public Coordinates getRight(int distance) {
+        return at(x + distance, y);
+    }
+
+    @Override
+    public Coordinates getRight() {
+        return getRight(1);
+    }
+
+    @Override
+    public Coordinates getUp(int distance) {
+        return at(x, y - distance);
+    }
+
+    @Override
+    public Coordinates getUp() {
+        return getUp(1);
+    }
+
+    @Override
+    public Coordinates getDown(int distance) {
+        return at(x, y + distance);
+    }
+
+    @Override
+    public Coordinates getDown() {
+        return getDown(1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Coordinates)) {
+            return false;
+        }
+        Coordinates other = (Coordinates) o;
+        return x == other.getX() && y == other.getY();
+    }
+
+    @Override
+    public int hashCode() {
+        return getIndex();
+    }
+
+    @Override
+    public String toString() {
+        return "(" + x + "," + y + ")";
+    }
+}
@@ -0,0 +1,112 @@
+package gridwars.simulator;
+
+import cern.ais.gridwars.api.Coordinates;
+import cern.ais.gridwars.api.UniverseView;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link UniverseView} of one player over a {@link GameState}. A new view is handed to the bot every turn, as the
+ * game engine does.
+ */
+public class SimulatedUniverseView implements UniverseView {
+    private final GameState state;
+    private final byte player;
+    private final GameSimulator simulator;
+    private final int currentTurn;
+    private List<Coordinates> myCells;
+
+    SimulatedUniverseView(GameState state, byte player, GameSimulator simulator, int currentTurn) {
+        this.state = state;
+        this.player = player;
+        this.simulator = simulator;
+        this.currentTurn = currentTurn;
+    }
+
+    private int index(Coordinates coordinates) {
+        return state.indexOf(coordinates.getX(), coordinates.getY());
+    }
+
+    @Override
+    public List<Coordinates> getMyCells() {
+        if (myCells == null) {
+            myCells = new ArrayList<>();
+            for (int cell = 0; cell < state.getCellCount(); cell++) {
+                if (state.getOwner(cell) == player) {
+                    myCells.add(state.getCoordinates(cell));
+                }
+            }
+        }
+        return myCells;
+    }
+
+    @Override
+    public int getPopulation(Coordinates coordinates) {
+        return state.getPopulation(index(coordinates));
+    }
+
+    @Override
+    public int getPopulation(int x, int y) {
+        return state.getPopulation(state.indexOf(x, y));
+    }
+
+    @Override
+    public boolean isEmpty(Coordinates coordinates) {
+        return state.getOwner(index(coordinates)) == GameState.NOBODY;
+    }
+
+    @Override
+    public boolean isEmpty(int x, int y) {
+        return state.getOwner(state.indexOf(x, y)) == GameState.NOBODY;
+    }
+
+    @Override
+    public boolean belongsToMe(Coordinates coordinates) {
+        return state.getOwner(index(coordinates)) == player;
+    }
+
+    @Override
+    public boolean belongsToMe(int x, int y) {
+        return state.getOwner(state.indexOf(x, y)) == player;
+    }
+
+    @Override
+    public int getUniverseSize() {
+        return state.getUniverseSize();
+    }
+
+    @Override
+    public double getGrowthRate() {
+        return simulator.getGrowthRate();
+    }
+
+    @Override
+    public int getMaximumPopulation() {
+        return simulator.getMaximumPopulation();
+    }
+
+    @Override
+    public int getTurnTimeOutInMilliseconds() {
+        return simulator.getTurnTimeOutInMilliseconds();
+    }
+
+    @Override
+    public int getCurrentTurn() {
+        return currentTurn;
+    }
+
+    @Override
+    public int getTurnLimit() {
+        return simulator.getRoundLimit() * 2;
+    }
+
+    @Override
+    public Coordinates getCoordinates(int x, int y) {
+        return state.getCoordinates(state.indexOf(x, y));
+    }
+
+    @Override
+    public void log(String message) {
+    }
+}
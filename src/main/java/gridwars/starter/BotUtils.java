@@ -7,12 +7,41 @@ import cern.ais.gridwars.api.command.MovementCommand;
 import java.util.*;
 
 public class BotUtils {
+    private static final MovementCommand.Direction[] DIRECTIONS = MovementCommand.Direction.values();
+
+    // The Coordinates variants walk the neighbour tables of the shared Geometry and query the view by x and y
+
+    private static int indexOf(Coordinates cell, Geometry geometry) {
+        return geometry.indexOf(cell.getX(), cell.getY());
+    }
+
+    private static boolean belongsToMe(int cell, Geometry geometry, UniverseView universeView) {
+        return universeView.belongsToMe(geometry.getX(cell), geometry.getY(cell));
+    }
+
+    private static boolean isEnemy(int cell, Geometry geometry, UniverseView universeView) {
+        int x = geometry.getX(cell);
+        int y = geometry.getY(cell);
+        return !universeView.isEmpty(x, y) && !universeView.belongsToMe(x, y);
+    }
+
     // Count the number of neighboring cells that belong to the bot
     public static int countFriendlyNeighbors(Coordinates cell, UniverseView universeView) {
+        Geometry geometry = Geometry.forUniverse(universeView);
+        int index = indexOf(cell, geometry);
         int count = 0;
-        for (MovementCommand.Direction direction : MovementCommand.Direction.values()) {
-            Coordinates neighbor = cell.getNeighbour(direction);
-            if (universeView.belongsToMe(neighbor)) {
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            if (belongsToMe(geometry.getNeighbor(index, d), geometry, universeView)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static int countFriendlyNeighbors(int cell, BoardSnapshot board) {
+        int count = 0;
+        for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+            if (board.belongsToMe(board.getNeighbor(cell, d))) {
                 count++;
             }
         }
@@ -21,10 +50,21 @@ public class BotUtils {
 
     // Count the number of enemy neighbors around the cell
     public static int countEnemyNeighbors(Coordinates cell, UniverseView universeView) {
+        Geometry geometry = Geometry.forUniverse(universeView);
+        int index = indexOf(cell, geometry);
         int count = 0;
-        for (MovementCommand.Direction direction : MovementCommand.Direction.values()) {
-            Coordinates neighbor = cell.getNeighbour(direction);
-            if (!universeView.isEmpty(neighbor) && !universeView.belongsToMe(neighbor)) {
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            if (isEnemy(geometry.getNeighbor(index, d), geometry, universeView)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public static int countEnemyNeighbors(int cell, BoardSnapshot board) {
+        int count = 0;
+        for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+            if (board.isEnemy(board.getNeighbor(cell, d))) {
                 count++;
             }
         }
@@ -33,11 +73,24 @@ public class BotUtils {
 
     // Calculate total population of surrounding friendly neighbors
     public static int calculateNeighborPopulation(Coordinates cell, UniverseView universeView) {
+        Geometry geometry = Geometry.forUniverse(universeView);
+        int index = indexOf(cell, geometry);
+        int totalPopulation = 0;
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            int neighbor = geometry.getNeighbor(index, d);
+            if (belongsToMe(neighbor, geometry, universeView)) {
+                totalPopulation += universeView.getPopulation(geometry.getX(neighbor), geometry.getY(neighbor));
+            }
+        }
+        return totalPopulation;
+    }
+
+    public static int calculateNeighborPopulation(int cell, BoardSnapshot board) {
         int totalPopulation = 0;
-        for (MovementCommand.Direction direction : MovementCommand.Direction.values()) {
-            Coordinates neighbor = cell.getNeighbour(direction);
-            if (universeView.belongsToMe(neighbor)) {
-                totalPopulation += universeView.getPopulation(neighbor);
+        for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+            int neighbor = board.getNeighbor(cell, d);
+            if (board.belongsToMe(neighbor)) {
+                totalPopulation += board.getPopulation(neighbor);
             }
         }
         return totalPopulation;
@@ -45,19 +98,40 @@ public class BotUtils {
 
     // Get the direction(s) with the weakest enemy population
     public static List<MovementCommand.Direction> getWeakestEnemyDirections(Coordinates cell, UniverseView universeView) {
+        Geometry geometry = Geometry.forUniverse(universeView);
+        int index = indexOf(cell, geometry);
         List<MovementCommand.Direction> weakestDirections = new ArrayList<>();
         int minEnemyPopulation = Integer.MAX_VALUE;
 
-        for (MovementCommand.Direction direction : MovementCommand.Direction.values()) {
-            Coordinates neighbor = cell.getNeighbour(direction);
-            if (!universeView.belongsToMe(neighbor) && !universeView.isEmpty(neighbor)) {
-                int enemyPopulation = universeView.getPopulation(neighbor);
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            int neighbor = geometry.getNeighbor(index, d);
+            if (isEnemy(neighbor, geometry, universeView)) {
+                int enemyPopulation = universeView.getPopulation(geometry.getX(neighbor), geometry.getY(neighbor));
                 if (enemyPopulation < minEnemyPopulation) {
                     minEnemyPopulation = enemyPopulation;
                     weakestDirections.clear();
-                    weakestDirections.add(direction);
+                    weakestDirections.add(DIRECTIONS[d]);
+                } else if (enemyPopulation == minEnemyPopulation) {
+                    weakestDirections.add(DIRECTIONS[d]);
+                }
+            }
+        }
+        return weakestDirections;
+    }
+
+    public static int getWeakestEnemyDirections(int cell, BoardSnapshot board) {
+        int weakestDirections = DirectionSet.NONE;
+        int minEnemyPopulation = Integer.MAX_VALUE;
+
+        for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+            int neighbor = board.getNeighbor(cell, d);
+            if (board.isEnemy(neighbor)) {
+                int enemyPopulation = board.getPopulation(neighbor);
+                if (enemyPopulation < minEnemyPopulation) {
+                    minEnemyPopulation = enemyPopulation;
+                    weakestDirections = DirectionSet.add(DirectionSet.NONE, d);
                 } else if (enemyPopulation == minEnemyPopulation) {
-                    weakestDirections.add(direction);
+                    weakestDirections = DirectionSet.add(weakestDirections, d);
                 }
             }
         }
@@ -71,32 +145,69 @@ public class BotUtils {
 
     // Get directions to the nearest empty cell from the current cell
     public static List<MovementCommand.Direction> getEmptyNeighborDirections(Coordinates cell, UniverseView universeView) {
+        Geometry geometry = Geometry.forUniverse(universeView);
+        int index = indexOf(cell, geometry);
         List<MovementCommand.Direction> emptyDirections = new ArrayList<>();
-        for (MovementCommand.Direction direction : MovementCommand.Direction.values()) {
-            Coordinates neighbor = cell.getNeighbour(direction);
-            if (universeView.isEmpty(neighbor)) {
-                emptyDirections.add(direction);
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            int neighbor = geometry.getNeighbor(index, d);
+            if (universeView.isEmpty(geometry.getX(neighbor), geometry.getY(neighbor))) {
+                emptyDirections.add(DIRECTIONS[d]);
             }
         }
         return emptyDirections;
     }
 
+    public static int getEmptyNeighborDirections(int cell, BoardSnapshot board) {
+        int emptyDirections = DirectionSet.NONE;
+        for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+            if (board.isEmpty(board.getNeighbor(cell, d))) {
+                emptyDirections = DirectionSet.add(emptyDirections, d);
+            }
+        }
+        return emptyDirections;
+    }
+
+    // Get the directions of all neighbors that do not belong to the bot (empty or enemy)
+    public static List<MovementCommand.Direction> getAvailableDirections(Coordinates cell, UniverseView universeView) {
+        Geometry geometry = Geometry.forUniverse(universeView);
+        int index = indexOf(cell, geometry);
+        List<MovementCommand.Direction> directions = new ArrayList<>();
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            if (!belongsToMe(geometry.getNeighbor(index, d), geometry, universeView)) {
+                directions.add(DIRECTIONS[d]);
+            }
+        }
+        return directions;
+    }
+
+    public static int getAvailableDirections(int cell, BoardSnapshot board) {
+        int directions = DirectionSet.NONE;
+        for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+            if (!board.belongsToMe(board.getNeighbor(cell, d))) {
+                directions = DirectionSet.add(directions, d);
+            }
+        }
+        return directions;
+    }
+
     // Find the direction(s) that lead to the largest cluster of enemy cells for an attack strategy
     public static List<MovementCommand.Direction> getEnemyClusterDirections(Coordinates cell, UniverseView universeView) {
+        Geometry geometry = Geometry.forUniverse(universeView);
+        int index = indexOf(cell, geometry);
         Map<MovementCommand.Direction, Integer> clusterMap = new HashMap<>();
 
-        for (MovementCommand.Direction direction : MovementCommand.Direction.values()) {
-            Coordinates neighbor = cell.getNeighbour(direction);
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            int neighbor = geometry.getNeighbor(index, d);
             int clusterSize = 0;
 
-            // Count consecutive enemy cells in this direction
-            while (!universeView.isEmpty(neighbor) && !universeView.belongsToMe(neighbor)) {
+            // Count consecutive enemy cells in this direction, at most once around the torus
+            while (isEnemy(neighbor, geometry, universeView) && clusterSize < geometry.getUniverseSize()) {
                 clusterSize++;
-                neighbor = neighbor.getNeighbour(direction);
+                neighbor = geometry.getNeighbor(neighbor, d);
             }
 
             if (clusterSize > 0) {
-                clusterMap.put(direction, clusterSize);
+                clusterMap.put(DIRECTIONS[d], clusterSize);
             }
         }
 
@@ -112,42 +223,89 @@ public class BotUtils {
         return resultDirections;
     }
 
-    // Get all enemy cells within a specific radius for targeting
+    public static int getEnemyClusterDirections(int cell, BoardSnapshot board) {
+        int resultDirections = DirectionSet.NONE;
+        int maxClusterSize = 1;
+
+        for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+            int neighbor = board.getNeighbor(cell, d);
+            int clusterSize = 0;
+
+            // Count consecutive enemy cells in this direction, at most once around the torus
+            while (board.isEnemy(neighbor) && clusterSize < board.getUniverseSize()) {
+                clusterSize++;
+                neighbor = board.getNeighbor(neighbor, d);
+            }
+
+            if (clusterSize > maxClusterSize) {
+                maxClusterSize = clusterSize;
+                resultDirections = DirectionSet.add(DirectionSet.NONE, d);
+            } else if (clusterSize == maxClusterSize) {
+                resultDirections = DirectionSet.add(resultDirections, d);
+            }
+        }
+
+        return resultDirections;
+    }
+
+    // Get all enemy cells within a specific Manhattan radius for targeting, nearest first, by walking the rings of the
+    // geometry; like the rings, a radius of half the universe size or more lists some cells twice
     public static List<Coordinates> getEnemiesInRadius(Coordinates cell, UniverseView universeView, int radius) {
+        Geometry geometry = Geometry.forUniverse(universeView);
+        int start = indexOf(cell, geometry);
         List<Coordinates> enemyCells = new ArrayList<>();
-        Queue<Coordinates> queue = new LinkedList<>();
-        Set<Coordinates> visited = new HashSet<>();
-        queue.add(cell);
-        visited.add(cell);
-
-        while (!queue.isEmpty()) {
-            Coordinates current = queue.poll();
-            int distance = calculateManhattanDistance(cell, current);
-            if (distance > radius) {
-                continue;
-            }
-
-            for (MovementCommand.Direction direction : MovementCommand.Direction.values()) {
-                Coordinates neighbor = current.getNeighbour(direction);
-                if (!visited.contains(neighbor) && !universeView.belongsToMe(neighbor) && !universeView.isEmpty(neighbor)) {
-                    enemyCells.add(neighbor);
-                    queue.add(neighbor);
-                    visited.add(neighbor);
+        for (int r = 1; r <= Math.min(radius, geometry.getUniverseSize()); r++) {
+            int[] ring = geometry.getRing(r);
+            for (int i = 0; i < ring.length / 2; i++) {
+                int enemy = geometry.getRingCell(start, ring, i);
+                if (isEnemy(enemy, geometry, universeView)) {
+                    enemyCells.add(universeView.getCoordinates(geometry.getX(enemy), geometry.getY(enemy)));
                 }
             }
         }
-
         return enemyCells;
     }
 
+    // Count the enemy cells within the Manhattan radius, reachable or not, by walking the rings of the geometry
+    public static int countEnemiesWithinRadius(int cell, BoardSnapshot board, int radius) {
+        Geometry geometry = board.getGeometry();
+        int count = 0;
+        for (int r = 1; r <= radius; r++) {
+            int[] ring = geometry.getRing(r);
+            for (int i = 0; i < ring.length / 2; i++) {
+                if (board.isEnemy(geometry.getRingCell(cell, ring, i))) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
     // Check if a cell is surrounded by friendly cells (for defensive purposes)
     public static boolean isSurroundedByFriendlyCells(Coordinates cell, UniverseView universeView) {
-        for (MovementCommand.Direction direction : MovementCommand.Direction.values()) {
-            Coordinates neighbor = cell.getNeighbour(direction);
-            if (!universeView.belongsToMe(neighbor)) {
+        Geometry geometry = Geometry.forUniverse(universeView);
+        int index = indexOf(cell, geometry);
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            if (!belongsToMe(geometry.getNeighbor(index, d), geometry, universeView)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static boolean isSurroundedByFriendlyCells(int cell, BoardSnapshot board) {
+        for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+            if (!board.belongsToMe(board.getNeighbor(cell, d))) {
                 return false;
             }
         }
         return true;
     }
+
+    // Add a movement command, skipping empty moves which would only waste a command
+    public static void move(List<MovementCommand> commandList, Coordinates cell, MovementCommand.Direction direction, int population) {
+        if (population > 0) {
+            commandList.add(new MovementCommand(cell, direction, population));
+        }
+    }
 }
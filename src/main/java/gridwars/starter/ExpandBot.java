@@ -4,6 +4,10 @@ import cern.ais.gridwars.api.Coordinates;
 import cern.ais.gridwars.api.UniverseView;
 import cern.ais.gridwars.api.bot.PlayerBot;
 import cern.ais.gridwars.api.command.MovementCommand;
+import gridwars.utils.BoardSnapshot;
+import gridwars.utils.BotUtils;
+import gridwars.utils.CommandCoalescer;
+import gridwars.utils.DirectionSet;
 
 import java.util.List;
 
@@ -13,29 +17,30 @@ import java.util.List;
  */
 public class ExpandBot implements PlayerBot {
 
-    public void getNextCommands(UniverseView universeView, List<MovementCommand> commandList) {
-        List<Coordinates> myCells = universeView.getMyCells();
+    private final BoardSnapshot board = new BoardSnapshot();
+    // Splits the population evenly between the cell and its free neighbours, so the remainder can be handed out
+    private final CommandCoalescer coalescer = new CommandCoalescer().setRedistributeRemainders(true);
 
-        for (Coordinates cell : myCells) {
-            int currentPopulation = universeView.getPopulation(cell);
+    public void getNextCommands(UniverseView universeView, List<MovementCommand> commandList) {
+        board.update(universeView);
+        double expandThreshold = 4.0 / (universeView.getGrowthRate() - 1);
 
-            if (currentPopulation > (4.0 / (universeView.getGrowthRate() - 1))) {
-                int split = 1;
+        for (int i = 0; i < board.getMyCellCount(); i++) {
+            int cell = board.getMyCell(i);
+            int currentPopulation = board.getPopulation(cell);
 
+            if (currentPopulation > expandThreshold) {
                 // Check left, right, up, down for cells that don't belong to me
-                for (MovementCommand.Direction direction : MovementCommand.Direction.values()) {
-                    if (!universeView.belongsToMe(cell.getNeighbour(direction))) {
-                        split++;
-                    }
-                }
+                int directions = BotUtils.getAvailableDirections(cell, board);
+                int split = 1 + DirectionSet.size(directions);
 
                 // Expand
-                for (MovementCommand.Direction direction : MovementCommand.Direction.values()) {
-                    if (!universeView.belongsToMe(cell.getNeighbour(direction))) {
-                        commandList.add(new MovementCommand(cell, direction, currentPopulation / split));
-                    }
+                Coordinates coordinates = board.getMyCellCoordinates(i);
+                for (int rest = directions; rest != DirectionSet.NONE; rest = DirectionSet.removeFirst(rest)) {
+                    commandList.add(new MovementCommand(coordinates, DirectionSet.first(rest), currentPopulation / split));
                 }
             }
         }
+        coalescer.process(universeView, commandList);
     }
 }
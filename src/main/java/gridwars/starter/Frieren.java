@@ -4,7 +4,25 @@ import cern.ais.gridwars.api.Coordinates;
 import cern.ais.gridwars.api.UniverseView;
 import cern.ais.gridwars.api.bot.PlayerBot;
 import cern.ais.gridwars.api.command.MovementCommand;
+import gridwars.search.MoveBuffer;
+import gridwars.search.PlanSearch;
+import gridwars.utils.BoardSnapshot;
 import gridwars.utils.BotUtils;
+import gridwars.utils.CellScoreCache;
+import gridwars.utils.CommandCoalescer;
+import gridwars.utils.DirectionSet;
+import gridwars.utils.DistanceField;
+import gridwars.utils.FlowField;
+import gridwars.utils.FrontierIndex;
+import gridwars.utils.TiledDecisionEngine;
+import gridwars.utils.Instrumented;
+import gridwars.utils.OpponentTracker;
+import gridwars.utils.Parameter;
+import gridwars.utils.Seedable;
+import gridwars.utils.TurnDeadline;
+import gridwars.utils.TurnMetrics;
+import gridwars.utils.TurnScheduler;
+import gridwars.utils.Tunable;
 
 import java.util.*;
 
@@ -12,108 +30,315 @@ import java.util.*;
  * Frieren: Advanced strategy bot for GridWars, focusing on long-term territory dominance, efficient population management,
  * and adaptive behavior for expansion, defense, and attack.
  */
-public class Frieren implements PlayerBot {
+public class Frieren implements PlayerBot, Instrumented, Tunable, Seedable {
+
+    static final List<Parameter> PARAMETERS = Collections.unmodifiableList(Arrays.asList(
+            Parameter.integer("turnThreshold", 0, 150),
+            Parameter.integer("defensePopulationThreshold", 1, 80),
+            Parameter.integer("attackPopulationThreshold", 1, 100),
+            Parameter.real("expansionFactor", 0.1, 1.0),
+            Parameter.real("defenseFactor", 0.05, 1.0)));
+
+    // Expansion score of an empty cell: friendly neighbours are good, enemy neighbours bad
+    static final CellScoreCache.CellScore EXPANSION_SCORE =
+            (cell, board) -> BotUtils.countFriendlyNeighbors(cell, board) * 2 - BotUtils.countEnemyNeighbors(cell, board);
 
     Coordinates basePosition;
     int currentTurn;
+    int callCount; // Calls of getNextCommands so far; the turn number alone can repeat, e.g. in the command harness
     int turnThreshold = 40; // Switch strategy after 40 turns
     int defensePopulationThreshold = 20; // Minimum population for cells to switch to defense
     int attackPopulationThreshold = 50; // Minimum population to initiate an attack
     int maxClusterRadius = 3; // Radius to detect enemy clusters
     double expansionFactor = 0.6; // Population fraction to use for expansion
     double defenseFactor = 0.3; // Population fraction to use for defense
+    int routingReserve = 5; // Population interior cells keep when routing their surplus to the border
+    boolean parallelDecisions = false; // Decide border cells on all cores; the game server may not grant extra threads
+    boolean searchMode = false; // Play the best whole-turn plan found by rollouts instead of per-cell rules
+    int searchMillis = 20; // Upper bound of the time spent on rollouts per turn
 
     Random random = new Random();
+    Random cellRandom = new Random(); // Reseeded for every cell of the sequential decisions
+    BoardSnapshot board = new BoardSnapshot();
+    FrontierIndex frontier = new FrontierIndex();
+    OpponentTracker opponent = new OpponentTracker();
+    CellScoreCache expansionScores = new CellScoreCache(EXPANSION_SCORE);
+    DistanceField enemyDistances = new DistanceField();
+    int enemyDistancesCall;
+    int[] commandedCall = new int[0]; // Last call in which each cell was given a command
+    FlowField flowField = new FlowField();
+    TiledDecisionEngine decisionEngine = new TiledDecisionEngine(16);
+    PlanSearch planSearch = new PlanSearch(6).addDefaultPlans();
+    MoveBuffer planMoves = new MoveBuffer();
+    CommandCoalescer coalescer = new CommandCoalescer();
+
+    TurnMetrics metrics = new TurnMetrics(4096, "snapshot", "border decisions", "routing", "cluster detection", "weighted decisions", "coalescing")
+            .withCounters("expansion score hits", "expansion score misses");
+    TurnScheduler scheduler = new TurnScheduler(this::decideBorderCells, 10)
+            .addRefinement("routing", 3, this::routeToBorder)
+            .addRefinement("cluster detection", 2, this::updateEnemyClusters)
+            .addRefinement("weighted decisions", 1, this::decideIdleCells)
+            .setMetrics(metrics, 1);
 
     @Override
     public void getNextCommands(UniverseView universeView, List<MovementCommand> commandList) {
+        long turnStart = System.nanoTime();
         currentTurn = universeView.getCurrentTurn();
-        List<Coordinates> myCells = universeView.getMyCells();
+        callCount++;
+        metrics.startTurn(currentTurn);
+        board.update(universeView);
+        frontier.update(board);
+        opponent.update(board, frontier, universeView.getGrowthRate(), universeView.getMaximumPopulation());
+        expansionScores.update(board);
+        metrics.endPhase(0);
 
         if (basePosition == null) {
-            basePosition = myCells.get(0);  // Establish base on first turn
+            basePosition = board.getMyCellCoordinates(0);  // Establish base on first turn
+        }
+        if (commandedCall.length != board.getCellCount()) {
+            commandedCall = new int[board.getCellCount()];
         }
 
-        for (Coordinates cell : myCells) {
-            int currentPopulation = universeView.getPopulation(cell);
+        scheduler.run(universeView, commandList, turnStart);
+        coalescer.process(universeView, commandList);
+        opponent.recordCommands(commandList);
+        scheduler.endPostProcessing();
+        metrics.endPhase(5);
+        metrics.addCounter(0, expansionScores.getTurnHits());
+        metrics.addCounter(1, expansionScores.getTurnMisses());
+        metrics.endTurn(commandList);
+    }
 
-            if (currentPopulation > defensePopulationThreshold) {
-                if (shouldExpand(cell, universeView)) {
-                    handleExpansion(cell, universeView, commandList, currentPopulation);
-                } else if (currentPopulation > attackPopulationThreshold) {
-                    handleAttack(cell, universeView, commandList, currentPopulation);
-                } else {
-                    handleDefense(cell, universeView, commandList, currentPopulation);
-                }
+    // Decide the border cells on the common fork/join pool instead of the calling thread
+    public Frieren setParallelDecisions(boolean parallelDecisions) {
+        this.parallelDecisions = parallelDecisions;
+        return this;
+    }
+
+    @Override
+    public TurnMetrics getTurnMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public void setRandomSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    @Override
+    public List<Parameter> getParameters() {
+        return PARAMETERS;
+    }
+
+    @Override
+    public double[] getParameterValues() {
+        return new double[]{turnThreshold, defensePopulationThreshold, attackPopulationThreshold, expansionFactor, defenseFactor};
+    }
+
+    @Override
+    public void setParameterValues(double[] values) {
+        turnThreshold = (int) values[0];
+        defensePopulationThreshold = (int) values[1];
+        attackPopulationThreshold = (int) values[2];
+        expansionFactor = values[3];
+        defenseFactor = values[4];
+    }
+
+    // Mandatory pass: expand, attack or defend with every border cell that has enough population
+    private void decideBorderCells(UniverseView universeView, List<MovementCommand> commandList, TurnDeadline deadline) {
+        if (searchMode) {
+            playSearchedPlan(universeView, commandList, deadline);
+            return;
+        }
+        // Both paths seed every cell from the turn seed, so they decide alike until the deadline cuts one short
+        long turnSeed = random.nextLong();
+        if (parallelDecisions) {
+            decisionEngine.run(board, frontier, turnSeed, this::decideCell, deadline, commandList);
+            metrics.addCellsProcessed(frontier.getBorderCount());
+            return;
+        }
+
+        for (int i = 0; i < frontier.getBorderCount(); i++) {
+            if (i % 64 == 0 && deadline.isExpired()) {
+                return;
+            }
+            metrics.addCellsProcessed(1);
+            int cell = frontier.getBorderCell(i);
+            cellRandom.setSeed(TiledDecisionEngine.cellSeed(turnSeed, cell));
+            decideCell(cell, cellRandom, commandList);
+        }
+    }
+
+    // Only reads the snapshot and writes state of its own cell, so cells can be decided in parallel
+    private void decideCell(int cellIndex, Random random, List<MovementCommand> commandList) {
+        // Cells surrounded by friendly cells can neither expand, attack nor defend, so only the border is visited
+        if (!frontier.isBorder(cellIndex)) {
+            return;
+        }
+        Coordinates cell = board.getCoordinates(cellIndex);
+        int currentPopulation = board.getPopulation(cellIndex);
+        int commandCount = commandList.size();
+
+        if (currentPopulation > defensePopulationThreshold) {
+            if (shouldExpand(cell)) {
+                handleExpansion(cell, commandList, currentPopulation);
+            } else if (currentPopulation > attackPopulationThreshold) {
+                handleAttack(cell, random, commandList, currentPopulation);
+            } else {
+                handleDefense(cell, random, commandList, currentPopulation);
+            }
+        }
+        if (commandList.size() > commandCount) {
+            commandedCall[cellIndex] = callCount;
+        }
+    }
+
+    // Search mode: score the candidate plans with rollouts in half the time left and play the best one
+    private void playSearchedPlan(UniverseView universeView, List<MovementCommand> commandList, TurnDeadline deadline) {
+        long budgetNanos = Math.min(deadline.getRemainingNanos() / 2, searchMillis * 1_000_000L);
+        int plan = planSearch.search(board, universeView.getGrowthRate(), universeView.getMaximumPopulation(), System.nanoTime() + budgetNanos);
+
+        planSearch.planRoot(plan, random, planMoves);
+        for (int i = 0; i < planMoves.size(); i++) {
+            int cellIndex = planMoves.getCell(i);
+            BotUtils.move(commandList, board.getCoordinates(cellIndex), BoardSnapshot.DIRECTIONS[planMoves.getDirection(i)], planMoves.getAmount(i));
+            commandedCall[cellIndex] = callCount;
+        }
+        metrics.addCellsProcessed(frontier.getBorderCount());
+    }
+
+    // Refinement: push the surplus of interior cells down the flow field towards the border
+    private void routeToBorder(UniverseView universeView, List<MovementCommand> commandList, TurnDeadline deadline) {
+        flowField.compute(board, frontier);
+        flowField.routeSurplus(board, commandList, routingReserve, universeView.getMaximumPopulation(), deadline);
+    }
+
+    // Refinement: enemy distances for the cluster-aware weighted decisions
+    private void updateEnemyClusters(UniverseView universeView, List<MovementCommand> commandList, TurnDeadline deadline) {
+        if (enemyDistancesCall != callCount) {
+            // One bounded search per turn answers the radius query for every cell
+            enemyDistances.compute(board, BoardSnapshot.ENEMY, maxClusterRadius);
+            enemyDistancesCall = callCount;
+        }
+    }
+
+    // Refinement: give border cells that the mandatory pass left idle a weighted second chance
+    private void decideIdleCells(UniverseView universeView, List<MovementCommand> commandList, TurnDeadline deadline) {
+        if (searchMode) {
+            return; // The searched plan already decided the border
+        }
+        for (int i = 0; i < frontier.getBorderCount(); i++) {
+            if (i % 64 == 0 && deadline.isExpired()) {
+                return;
+            }
+            metrics.addCellsProcessed(1);
+            int cellIndex = frontier.getBorderCell(i);
+            if (commandedCall[cellIndex] != callCount && board.getPopulation(cellIndex) > defensePopulationThreshold) {
+                applyWeightedDecisionSystem(board.getCoordinates(cellIndex), universeView, commandList);
             }
         }
     }
 
     // 1. Expansion Strategy: Prioritize empty neighboring cells, expanding territory in the early game.
-    private void handleExpansion(Coordinates cell, UniverseView universeView, List<MovementCommand> commandList, int currentPopulation) {
-        List<MovementCommand.Direction> emptyDirections = BotUtils.getEmptyNeighborDirections(cell, universeView);
+    private void handleExpansion(Coordinates cell, List<MovementCommand> commandList, int currentPopulation) {
+        int emptyDirections = BotUtils.getEmptyNeighborDirections(board.indexOf(cell), board);
 
-        if (!emptyDirections.isEmpty()) {
-            MovementCommand.Direction selectedDirection = selectBestDirectionForExpansion(cell, universeView, emptyDirections);
+        if (!DirectionSet.isEmpty(emptyDirections)) {
+            MovementCommand.Direction selectedDirection = selectBestDirectionForExpansion(cell, emptyDirections);
             int populationToMove = (int) (currentPopulation * expansionFactor);
             BotUtils.move(commandList, cell, selectedDirection, populationToMove);
         }
     }
 
     // 2. Attack Strategy: Find weak enemy cells and focus on reducing enemy population or capturing territory.
-    private void handleAttack(Coordinates cell, UniverseView universeView, List<MovementCommand> commandList, int currentPopulation) {
-        List<MovementCommand.Direction> weakEnemyDirections = BotUtils.getWeakestEnemyDirections(cell, universeView);
+    private void handleAttack(Coordinates cell, Random random, List<MovementCommand> commandList, int currentPopulation) {
+        int cellIndex = board.indexOf(cell);
+        int weakEnemyDirections = BotUtils.getWeakestEnemyDirections(cellIndex, board);
 
-        if (!weakEnemyDirections.isEmpty()) {
-            MovementCommand.Direction attackDirection = weakEnemyDirections.get(random.nextInt(weakEnemyDirections.size()));
+        if (!DirectionSet.isEmpty(weakEnemyDirections)) {
+            MovementCommand.Direction attackDirection = DirectionSet.random(weakEnemyDirections, random);
             int attackPopulation = (int) (currentPopulation * 0.5); // Use 50% of population for attacks
+            // Keep back what the enemy is expected to throw at this cell next turn
+            int expectedPressure = (int) Math.ceil(opponent.getPredictedPressure(cellIndex));
+            attackPopulation = Math.min(attackPopulation, currentPopulation - expectedPressure);
             BotUtils.move(commandList, cell, attackDirection, attackPopulation);
         }
     }
 
     // 3. Defense Strategy: Redistribute population to bolster cells at risk or to create strongholds.
-    private void handleDefense(Coordinates cell, UniverseView universeView, List<MovementCommand> commandList, int currentPopulation) {
-        List<MovementCommand.Direction> directions = BotUtils.getAvailableDirections(cell, universeView);
+    private void handleDefense(Coordinates cell, Random random, List<MovementCommand> commandList, int currentPopulation) {
+        int cellIndex = board.indexOf(cell);
+        MovementCommand.Direction threatened = selectMostThreatenedNeighbor(cellIndex);
+        if (threatened != null) {
+            BotUtils.move(commandList, cell, threatened, (int) (currentPopulation * defenseFactor));
+            return;
+        }
+        if (opponent.isThreatened(cellIndex, currentPopulation)) {
+            return; // Hold the cell instead of thinning it out
+        }
 
-        if (!directions.isEmpty()) {
-            MovementCommand.Direction direction = directions.get(random.nextInt(directions.size()));
+        int directions = BotUtils.getAvailableDirections(cellIndex, board);
+        if (!DirectionSet.isEmpty(directions)) {
+            MovementCommand.Direction direction = DirectionSet.random(directions, random);
             int defensePopulation = (int) (currentPopulation * defenseFactor);
             BotUtils.move(commandList, cell, direction, defensePopulation);
         }
     }
 
+    // Friendly neighbour whose predicted enemy pressure exceeds its population the most, or null if none is at risk
+    private MovementCommand.Direction selectMostThreatenedNeighbor(int cellIndex) {
+        MovementCommand.Direction mostThreatened = null;
+        double largestDeficit = 0;
+        for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+            int neighbor = board.getNeighbor(cellIndex, d);
+            if (board.belongsToMe(neighbor)) {
+                double deficit = opponent.getPredictedPressure(neighbor) - board.getPopulation(neighbor);
+                if (deficit > largestDeficit) {
+                    largestDeficit = deficit;
+                    mostThreatened = BoardSnapshot.DIRECTIONS[d];
+                }
+            }
+        }
+        return mostThreatened;
+    }
+
     // 4. Strategic Expansion: Select the best direction to expand based on enemy proximity and available population.
-    private MovementCommand.Direction selectBestDirectionForExpansion(Coordinates cell, UniverseView universeView, List<MovementCommand.Direction> emptyDirections) {
-        Map<MovementCommand.Direction, Integer> directionScores = new HashMap<>();
+    private MovementCommand.Direction selectBestDirectionForExpansion(Coordinates cell, int emptyDirections) {
+        int cellIndex = board.indexOf(cell);
+        MovementCommand.Direction bestDirection = null;
+        int bestScore = Integer.MIN_VALUE;
 
-        for (MovementCommand.Direction direction : emptyDirections) {
-            Coordinates neighbor = cell.getNeighbour(direction);
-            int score = BotUtils.countFriendlyNeighbors(neighbor, universeView) * 2 - BotUtils.countEnemyNeighbors(neighbor, universeView); // Friendly neighbors are good, enemy neighbors bad
-            directionScores.put(direction, score);
+        for (int rest = emptyDirections; rest != DirectionSet.NONE; rest = DirectionSet.removeFirst(rest)) {
+            MovementCommand.Direction direction = DirectionSet.first(rest);
+            int score = expansionScores.get(board.getNeighbor(cellIndex, direction));
+            if (score > bestScore) {
+                bestScore = score;
+                bestDirection = direction;
+            }
         }
 
-        return Collections.max(directionScores.entrySet(), Map.Entry.comparingByValue()).getKey(); // Choose the highest scored direction
+        return bestDirection; // Choose the highest scored direction
     }
 
     // 5. Dynamic Expansion: Decide whether to expand or consolidate based on current turn and population density.
-    private boolean shouldExpand(Coordinates cell, UniverseView universeView) {
-        int friendlyNeighbors = BotUtils.countFriendlyNeighbors(cell, universeView);
+    private boolean shouldExpand(Coordinates cell) {
+        int friendlyNeighbors = BotUtils.countFriendlyNeighbors(board.indexOf(cell), board);
         return currentTurn < turnThreshold && friendlyNeighbors < 3; // Expand early if not surrounded by friendly cells
     }
 
     // 6. Enemy Cluster Detection: Detect nearby enemy clusters within a specific radius and decide whether to engage.
     private boolean detectEnemyClusters(Coordinates cell, UniverseView universeView) {
-        List<Coordinates> enemiesInRadius = BotUtils.getEnemiesInRadius(cell, universeView, maxClusterRadius);
-        return !enemiesInRadius.isEmpty(); // If any enemies are in range, return true
+        updateEnemyClusters(universeView, null, null);
+        return enemyDistances.isWithin(board.indexOf(cell), maxClusterRadius); // If any enemies are in range, return true
     }
 
     // 7. Population Redistribution: Redistribute population among nearby friendly cells to ensure a balanced defense.
     private void redistributePopulation(Coordinates cell, UniverseView universeView, List<MovementCommand> commandList) {
-        List<MovementCommand.Direction> friendlyDirections = BotUtils.getAvailableDirections(cell, universeView);
-        int currentPopulation = universeView.getPopulation(cell);
+        int friendlyDirections = BotUtils.getAvailableDirections(board.indexOf(cell), board);
+        int currentPopulation = board.getPopulation(board.indexOf(cell));
 
-        if (!friendlyDirections.isEmpty() && currentPopulation > defensePopulationThreshold) {
-            MovementCommand.Direction direction = friendlyDirections.get(random.nextInt(friendlyDirections.size()));
+        if (!DirectionSet.isEmpty(friendlyDirections) && currentPopulation > defensePopulationThreshold) {
+            MovementCommand.Direction direction = DirectionSet.random(friendlyDirections, random);
             int populationToRedistribute = (int) (currentPopulation * 0.4); // Redistribute 40% of population
             BotUtils.move(commandList, cell, direction, populationToRedistribute);
         }
@@ -126,7 +351,7 @@ public class Frieren implements PlayerBot {
 
     // 9. Weighted Decision System: Create a flexible decision-making process to handle diverse scenarios.
     private void applyWeightedDecisionSystem(Coordinates cell, UniverseView universeView, List<MovementCommand> commandList) {
-        int currentPopulation = universeView.getPopulation(cell);
+        int currentPopulation = board.getPopulation(board.indexOf(cell));
         double expansionWeight = 0.4;
         double defenseWeight = 0.3;
         double attackWeight = 0.3;
@@ -143,11 +368,11 @@ public class Frieren implements PlayerBot {
         double rand = random.nextDouble() * totalWeight;
 
         if (rand < expansionWeight) {
-            handleExpansion(cell, universeView, commandList, currentPopulation);
+            handleExpansion(cell, commandList, currentPopulation);
         } else if (rand < expansionWeight + defenseWeight) {
-            handleDefense(cell, universeView, commandList, currentPopulation);
+            handleDefense(cell, random, commandList, currentPopulation);
         } else {
-            handleAttack(cell, universeView, commandList, currentPopulation);
+            handleAttack(cell, random, commandList, currentPopulation);
         }
     }
 }
@@ -4,6 +4,7 @@ import cern.ais.gridwars.api.Coordinates;
 import cern.ais.gridwars.api.UniverseView;
 import cern.ais.gridwars.api.bot.PlayerBot;
 import cern.ais.gridwars.api.command.MovementCommand;
+import gridwars.utils.CommandCoalescer;
 
 import java.util.List;
 
@@ -14,6 +15,7 @@ import java.util.List;
 public class MovingBot implements PlayerBot {
 
 	private final MovementCommand.Direction direction;
+	private final CommandCoalescer coalescer = new CommandCoalescer();
 
 	public MovingBot() {
 		this(MovementCommand.Direction.RIGHT);
@@ -35,5 +37,6 @@ public class MovingBot implements PlayerBot {
 	            movementCommands.add(movementCommand);
             }
         }
+	    coalescer.process(universeView, movementCommands);
 	}
 }
@@ -4,117 +4,157 @@ import cern.ais.gridwars.api.Coordinates;
 import cern.ais.gridwars.api.UniverseView;
 import cern.ais.gridwars.api.bot.PlayerBot;
 import cern.ais.gridwars.api.command.MovementCommand;
+import gridwars.utils.BoardSnapshot;
+import gridwars.utils.BotUtils;
+import gridwars.utils.CommandCoalescer;
+import gridwars.utils.DirectionSet;
+import gridwars.utils.FlowField;
+import gridwars.utils.FrontierIndex;
+import gridwars.utils.Instrumented;
+import gridwars.utils.Parameter;
+import gridwars.utils.Seedable;
+import gridwars.utils.TurnDeadline;
+import gridwars.utils.TurnMetrics;
+import gridwars.utils.TurnScheduler;
+import gridwars.utils.Tunable;
 
 import java.util.*;
 
-public class QuantumConqueror implements PlayerBot {
+public class QuantumConqueror implements PlayerBot, Instrumented, Tunable, Seedable {
+
+    static final List<Parameter> PARAMETERS = Collections.unmodifiableList(Arrays.asList(
+            Parameter.integer("turnThreshold", 0, 150),
+            Parameter.real("expansionFactor", 0.1, 1.0),
+            Parameter.integer("minimumPopulationThreshold", 1, 80),
+            Parameter.integer("aggressivePopulationThreshold", 1, 100)));
 
     Coordinates basePosition;
-    Map<Coordinates, Integer> gravityMap;
     int turnThreshold = 50;
     double expansionFactor = 0.7;
     int minimumPopulationThreshold = 10;
     int aggressivePopulationThreshold = 50;
+    int routingReserve = 5; // Population interior cells keep when routing their surplus to the border
     Random random = new Random();
-
-    public QuantumConqueror() {
-        gravityMap = new HashMap<>();
-    }
+    BoardSnapshot board = new BoardSnapshot();
+    FrontierIndex frontier = new FrontierIndex();
+    FlowField flowField = new FlowField();
+    CommandCoalescer coalescer = new CommandCoalescer();
+    TurnMetrics metrics = new TurnMetrics(4096, "snapshot", "border decisions", "routing", "coalescing");
+    TurnScheduler scheduler = new TurnScheduler(this::decideBorderCells, 10)
+            .addRefinement("routing", 2, this::routeToBorder)
+            .setMetrics(metrics, 1);
 
     @Override
     public void getNextCommands(UniverseView universeView, List<MovementCommand> commandList) {
-        List<Coordinates> myCells = universeView.getMyCells();
+        long turnStart = System.nanoTime();
+        metrics.startTurn(universeView.getCurrentTurn());
+        board.update(universeView);
+        frontier.update(board);
+        metrics.endPhase(0);
 
         if (basePosition == null) {
-            basePosition = myCells.get(0);
+            basePosition = board.getMyCellCoordinates(0);
         }
 
-        gravityMap.clear();
+        scheduler.run(universeView, commandList, turnStart);
+        coalescer.process(universeView, commandList);
+        scheduler.endPostProcessing();
+        metrics.endPhase(3);
+        metrics.endTurn(commandList);
+    }
 
-        for (Coordinates cell : myCells) {
-            gravityMap.put(cell, calculateGravity(universeView, cell));
-        }
+    @Override
+    public TurnMetrics getTurnMetrics() {
+        return metrics;
+    }
 
-        for (Coordinates cell : myCells) {
-            int currentPopulation = universeView.getPopulation(cell);
+    @Override
+    public void setRandomSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    @Override
+    public List<Parameter> getParameters() {
+        return PARAMETERS;
+    }
+
+    @Override
+    public double[] getParameterValues() {
+        return new double[]{turnThreshold, expansionFactor, minimumPopulationThreshold, aggressivePopulationThreshold};
+    }
+
+    @Override
+    public void setParameterValues(double[] values) {
+        turnThreshold = (int) values[0];
+        expansionFactor = values[1];
+        minimumPopulationThreshold = (int) values[2];
+        aggressivePopulationThreshold = (int) values[3];
+    }
+
+    private void decideBorderCells(UniverseView universeView, List<MovementCommand> commandList, TurnDeadline deadline) {
+        // Interior cells have no direction to move to, so only the border needs a decision
+        for (int i = 0; i < frontier.getBorderCount(); i++) {
+            if (i % 64 == 0 && deadline.isExpired()) {
+                return;
+            }
+            metrics.addCellsProcessed(1);
+            int cell = frontier.getBorderCell(i);
+            int currentPopulation = board.getPopulation(cell);
 
             if (currentPopulation > minimumPopulationThreshold) {
-                expandOrDefend(cell, universeView, commandList, currentPopulation);
+                expandOrDefend(cell, board.getCoordinates(cell), universeView, commandList, currentPopulation);
             }
         }
     }
 
-    private void expandOrDefend(Coordinates cell, UniverseView universeView, List<MovementCommand> commandList, int currentPopulation) {
-        List<MovementCommand.Direction> directions = getAvailableDirections(cell, universeView);
+    // Interior cells feed the border instead of sitting at the population cap
+    private void routeToBorder(UniverseView universeView, List<MovementCommand> commandList, TurnDeadline deadline) {
+        flowField.compute(board, frontier);
+        flowField.routeSurplus(board, commandList, routingReserve, universeView.getMaximumPopulation(), deadline);
+    }
+
+    private void expandOrDefend(int cell, Coordinates coordinates, UniverseView universeView, List<MovementCommand> commandList, int currentPopulation) {
+        int directions = BotUtils.getAvailableDirections(cell, board);
 
         if (universeView.getCurrentTurn() < turnThreshold) {
-            if (!directions.isEmpty()) {
+            if (!DirectionSet.isEmpty(directions)) {
                 // Use DFS-like expansion
-                MovementCommand.Direction selectedDirection = directions.get(random.nextInt(directions.size()));
+                MovementCommand.Direction selectedDirection = DirectionSet.random(directions, random);
                 int expansionPopulation = (int) (currentPopulation * expansionFactor);
-                move(commandList, cell, selectedDirection, expansionPopulation);
+                BotUtils.move(commandList, coordinates, selectedDirection, expansionPopulation);
             }
         } else {
             // Switch to defense/attack mode after threshold
             if (currentPopulation > aggressivePopulationThreshold) {
-                handleAggressiveMove(cell, universeView, commandList, currentPopulation, directions);
+                handleAggressiveMove(cell, coordinates, commandList, currentPopulation, directions);
             } else {
-                consolidate(cell, universeView, commandList);
-            }
-        }
-    }
-
-    private List<MovementCommand.Direction> getAvailableDirections(Coordinates cell, UniverseView universeView) {
-        List<MovementCommand.Direction> directions = new ArrayList<>();
-        for (MovementCommand.Direction dir : MovementCommand.Direction.values()) {
-            Coordinates neighbor = cell.getNeighbour(dir);
-            if (universeView.isEmpty(neighbor) || !universeView.belongsToMe(neighbor)) {
-                directions.add(dir);
+                consolidate(coordinates, commandList, currentPopulation, directions);
             }
         }
-        return directions;
-    }
-
-    private void move(List<MovementCommand> commandList, Coordinates cell, MovementCommand.Direction direction, int population) {
-        if (population > 0) {
-            commandList.add(new MovementCommand(cell, direction, population));
-        }
     }
 
-    private void handleAggressiveMove(Coordinates cell, UniverseView universeView, List<MovementCommand> commandList, int currentPopulation, List<MovementCommand.Direction> directions) {
-        if (!directions.isEmpty()) {
+    private void handleAggressiveMove(int cell, Coordinates coordinates, List<MovementCommand> commandList, int currentPopulation, int directions) {
+        if (!DirectionSet.isEmpty(directions)) {
             // Prioritize attacking enemy cells
-            for (MovementCommand.Direction direction : directions) {
-                Coordinates neighbor = cell.getNeighbour(direction);
-                if (!universeView.belongsToMe(neighbor) && !universeView.isEmpty(neighbor)) {
-                    move(commandList, cell, direction, currentPopulation / 2);
+            for (int rest = directions; rest != DirectionSet.NONE; rest = DirectionSet.removeFirst(rest)) {
+                MovementCommand.Direction direction = DirectionSet.first(rest);
+                if (board.isEnemy(board.getNeighbor(cell, direction))) {
+                    BotUtils.move(commandList, coordinates, direction, currentPopulation / 2);
                     return;
                 }
             }
             // If no enemies nearby, expand to empty cells
-            MovementCommand.Direction expansionDir = directions.get(random.nextInt(directions.size()));
-            move(commandList, cell, expansionDir, currentPopulation / 3);
+            MovementCommand.Direction expansionDir = DirectionSet.random(directions, random);
+            BotUtils.move(commandList, coordinates, expansionDir, currentPopulation / 3);
         }
     }
 
-    private void consolidate(Coordinates cell, UniverseView universeView, List<MovementCommand> commandList) {
+    private void consolidate(Coordinates coordinates, List<MovementCommand> commandList, int currentPopulation, int directions) {
         // Redistribute resources to strengthen the base or reinforce weak cells
-        List<MovementCommand.Direction> directions = getAvailableDirections(cell, universeView);
-        if (!directions.isEmpty()) {
-            MovementCommand.Direction direction = directions.get(random.nextInt(directions.size()));
-            int populationToMove = universeView.getPopulation(cell) / 4;
-            move(commandList, cell, direction, populationToMove);
-        }
-    }
-
-    private int calculateGravity(UniverseView universeView, Coordinates cell) {
-        int gravity = 0;
-        for (MovementCommand.Direction dir : MovementCommand.Direction.values()) {
-            Coordinates neighbor = cell.getNeighbour(dir);
-            if (!universeView.isEmpty(neighbor) && !universeView.belongsToMe(neighbor)) {
-                gravity++;
-            }
+        if (!DirectionSet.isEmpty(directions)) {
+            MovementCommand.Direction direction = DirectionSet.random(directions, random);
+            int populationToMove = currentPopulation / 4;
+            BotUtils.move(commandList, coordinates, direction, populationToMove);
         }
-        return gravity;
     }
 }
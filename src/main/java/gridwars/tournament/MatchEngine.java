@@ -0,0 +1,13 @@
+package gridwars.tournament;
+
+import cern.ais.gridwars.api.bot.PlayerBot;
+
+/**
+ * Plays a single headless match between two bots.
+ *
+ * Implementations are called concurrently from the tournament worker threads, so a call must not touch any
+ * state shared with other calls. Every call gets fresh bot instances.
+ */
+public interface MatchEngine {
+    MatchResult playMatch(PlayerBot bot1, PlayerBot bot2, long seed);
+}
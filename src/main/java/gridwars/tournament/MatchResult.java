@@ -0,0 +1,134 @@
+package gridwars.tournament;
+
+/**
+ * Outcome of one match, as seen from the two seats of the match.
+ *
+ * Besides the final board it counts the turns of each bot that were skipped because the bot threw or sent invalid
+ * commands, with the class of the first exception it threw, if any.
+ */
+public class MatchResult {
+    public static final int DRAW = 0;
+    public static final int BOT1 = 1;
+    public static final int BOT2 = 2;
+
+    public static final String CSV_HEADER = "bot1,bot2,seed,winner,turns,cells1,cells2,population1,population2,millis,"
+            + "skipped1,skipped2,exception1,exception2";
+
+    private final String bot1;
+    private final String bot2;
+    private final long seed;
+    private final int winner;
+    private final int turns;
+    private final int cells1;
+    private final int cells2;
+    private final long population1;
+    private final long population2;
+    private final long millis;
+    private final int skippedTurns1;
+    private final int skippedTurns2;
+    private final String exception1;
+    private final String exception2;
+
+    public MatchResult(String bot1, String bot2, long seed, int winner, int turns,
+                       int cells1, int cells2, long population1, long population2, long millis) {
+        this(bot1, bot2, seed, winner, turns, cells1, cells2, population1, population2, millis, 0, 0, null, null);
+    }
+
+    // Exceptions are class names, or null if the bot threw none
+    public MatchResult(String bot1, String bot2, long seed, int winner, int turns,
+                       int cells1, int cells2, long population1, long population2, long millis,
+                       int skippedTurns1, int skippedTurns2, String exception1, String exception2) {
+        this.bot1 = bot1;
+        this.bot2 = bot2;
+        this.seed = seed;
+        this.winner = winner;
+        this.turns = turns;
+        this.cells1 = cells1;
+        this.cells2 = cells2;
+        this.population1 = population1;
+        this.population2 = population2;
+        this.millis = millis;
+        this.skippedTurns1 = skippedTurns1;
+        this.skippedTurns2 = skippedTurns2;
+        this.exception1 = exception1;
+        this.exception2 = exception2;
+    }
+
+    // Copy of this result with the bot names and wall time filled in by the tournament runner
+    MatchResult withNamesAndTime(String bot1, String bot2, long millis) {
+        return new MatchResult(bot1, bot2, seed, winner, turns, cells1, cells2, population1, population2, millis,
+                skippedTurns1, skippedTurns2, exception1, exception2);
+    }
+
+    public String getBot1() {
+        return bot1;
+    }
+
+    public String getBot2() {
+        return bot2;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getWinner() {
+        return winner;
+    }
+
+    public int getTurns() {
+        return turns;
+    }
+
+    public int getCells1() {
+        return cells1;
+    }
+
+    public int getCells2() {
+        return cells2;
+    }
+
+    public long getPopulation1() {
+        return population1;
+    }
+
+    public long getPopulation2() {
+        return population2;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public int getSkippedTurns1() {
+        return skippedTurns1;
+    }
+
+    public int getSkippedTurns2() {
+        return skippedTurns2;
+    }
+
+    // Class of the first exception bot 1 threw, or null
+    public String getException1() {
+        return exception1;
+    }
+
+    public String getException2() {
+        return exception2;
+    }
+
+    public String toCsvRow() {
+        return bot1 + "," + bot2 + "," + seed + "," + winner + "," + turns + ","
+                + cells1 + "," + cells2 + "," + population1 + "," + population2 + "," + millis + ","
+                + skippedTurns1 + "," + skippedTurns2 + "," + (exception1 == null ? "" : exception1) + ","
+                + (exception2 == null ? "" : exception2);
+    }
+
+    @Override
+    public String toString() {
+        return bot1 + " vs " + bot2 + " (seed " + seed + "): "
+                + (winner == DRAW ? "draw" : "winner " + (winner == BOT1 ? bot1 : bot2))
+                + " after " + turns + " turns, cells " + cells1 + ":" + cells2
+                + (skippedTurns1 + skippedTurns2 > 0 ? ", skipped turns " + skippedTurns1 + ":" + skippedTurns2 : "");
+    }
+}
@@ -0,0 +1,521 @@
+package gridwars.tournament;
+
+import cern.ais.gridwars.api.bot.PlayerBot;
+import gridwars.simulator.GameSimulator;
+import gridwars.utils.Parameter;
+import gridwars.utils.Tunable;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tunes the parameters of a {@link Tunable} bot with a genetic algorithm, playing headless matches against a pool of
+ * opponent bots on a fixed pool of worker threads.
+ *
+ * Every generation evaluates all candidate parameter vectors in rounds. One round plays one match against every
+ * opponent for every candidate still in the race, all in parallel, with seats alternating between rounds. All
+ * candidates of a generation play the same match seeds, so they are compared on the same boards. After each round,
+ * candidates that cannot reach the elite any more, even by winning all their remaining matches, stop early and
+ * rank below every candidate that played all its matches. The best candidates carry over to the next generation
+ * unchanged; the others are replaced by children made by uniform crossover and Gaussian mutation, searching in the
+ * unit cube that {@link Parameter#fromUnit(double)} maps to the parameter ranges.
+ *
+ * With a checkpoint file the population and the best vector so far are saved after every generation, and a later
+ * run with the same file resumes from there. Seeds depend only on the tuner seed and the generation, so a resumed run
+ * continues exactly like an uninterrupted one.
+ */
+public class ParameterTuner {
+
+    private static class Candidate {
+        final double[] unit;
+        double points;
+        double cellShare;
+        int games;
+        int skippedTurns;
+        String firstException;
+        boolean stopped;
+
+        Candidate(double[] unit) {
+            this.unit = unit;
+        }
+
+        double getFitness() {
+            return games == 0 ? 0 : points / games;
+        }
+
+        double getCellShare() {
+            return games == 0 ? 0 : cellShare / games;
+        }
+    }
+
+    // Candidates that played all their matches rank above the stopped ones, whose mean over fewer matches is not
+    // comparable; at least the elite always finishes, since early stopping never stops a candidate at the cutoff
+    private static final Comparator<Candidate> BEST_FIRST = Comparator
+            .comparing((Candidate candidate) -> candidate.stopped)
+            .thenComparing(Comparator.comparingDouble(Candidate::getFitness)
+                    .thenComparingDouble(Candidate::getCellShare)
+                    .reversed());
+
+    private final MatchEngine engine;
+    private final int threads;
+    private final Class<? extends PlayerBot> tunedBot;
+    private final List<Class<? extends PlayerBot>> opponents;
+    private final List<Parameter> parameters;
+    private final long seed;
+
+    private int populationSize = 16;
+    private int eliteCount = 4;
+    private int gamesPerOpponent = 4;
+    private double mutationSigma = 0.15;
+    private Path checkpoint;
+
+    private int generation;
+    private List<double[]> population;
+    private double[] bestUnit;
+    private double bestFitness = -1;
+
+    public ParameterTuner(MatchEngine engine, int threads, Class<? extends PlayerBot> tunedBot,
+                          List<Class<? extends PlayerBot>> opponents, long seed) throws ReflectiveOperationException {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one worker thread is required");
+        }
+        if (opponents.isEmpty()) {
+            throw new IllegalArgumentException("At least one opponent is required");
+        }
+        PlayerBot bot = tunedBot.getDeclaredConstructor().newInstance();
+        if (!(bot instanceof Tunable)) {
+            throw new IllegalArgumentException(tunedBot.getName() + " does not implement Tunable");
+        }
+        this.engine = engine;
+        this.threads = threads;
+        this.tunedBot = tunedBot;
+        this.opponents = opponents;
+        this.seed = seed;
+
+        Tunable tunable = (Tunable) bot;
+        parameters = tunable.getParameters();
+        bestUnit = toUnit(tunable.getParameterValues());
+    }
+
+    public ParameterTuner setPopulationSize(int populationSize) {
+        this.populationSize = populationSize;
+        return this;
+    }
+
+    public ParameterTuner setEliteCount(int eliteCount) {
+        this.eliteCount = eliteCount;
+        return this;
+    }
+
+    public ParameterTuner setGamesPerOpponent(int gamesPerOpponent) {
+        this.gamesPerOpponent = gamesPerOpponent;
+        return this;
+    }
+
+    public ParameterTuner setMutationSigma(double mutationSigma) {
+        this.mutationSigma = mutationSigma;
+        return this;
+    }
+
+    // Save the state after every generation to this file, and resume from it if it already exists
+    public ParameterTuner setCheckpoint(Path checkpoint) {
+        this.checkpoint = checkpoint;
+        return this;
+    }
+
+    public int getGeneration() {
+        return generation;
+    }
+
+    public double getBestFitness() {
+        return bestFitness;
+    }
+
+    // Best parameter values found so far, in the order of the parameters
+    public double[] getBestValues() {
+        return fromUnit(bestUnit);
+    }
+
+    public List<Parameter> getParameters() {
+        return parameters;
+    }
+
+    // Evolve until the given total number of generations has been evaluated, including resumed ones
+    public void run(int generations) throws IOException {
+        if (population == null && !loadCheckpoint()) {
+            population = initialPopulation();
+        }
+        if (eliteCount < 1 || eliteCount > populationSize) {
+            throw new IllegalArgumentException("The elite must hold between 1 and " + populationSize + " candidates");
+        }
+
+        ExecutorService executor = newExecutor();
+        try {
+            while (generation < generations) {
+                long start = System.nanoTime();
+                List<Candidate> candidates = new ArrayList<>();
+                for (double[] unit : population) {
+                    candidates.add(new Candidate(unit));
+                }
+                int matches = evaluate(candidates, executor);
+                candidates.sort(BEST_FIRST);
+
+                Candidate best = candidates.get(0);
+                if (best.getFitness() > bestFitness) {
+                    bestFitness = best.getFitness();
+                    bestUnit = best.unit.clone();
+                }
+                report(candidates, matches, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+                population = breed(candidates);
+                generation++;
+                if (checkpoint != null) {
+                    saveCheckpoint();
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ExecutorService newExecutor() {
+        AtomicInteger workerCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "tuner-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // The bot's own values and random vectors around the unit cube
+    private List<double[]> initialPopulation() {
+        Random random = new Random(TournamentRunner.matchSeed(seed, -1));
+        List<double[]> initial = new ArrayList<>();
+        initial.add(bestUnit.clone());
+        while (initial.size() < populationSize) {
+            double[] unit = new double[parameters.size()];
+            for (int i = 0; i < unit.length; i++) {
+                unit[i] = random.nextDouble();
+            }
+            initial.add(unit);
+        }
+        return initial;
+    }
+
+    private int evaluate(List<Candidate> candidates, ExecutorService executor) {
+        long generationSeed = TournamentRunner.matchSeed(seed, generation);
+        int totalGames = gamesPerOpponent * opponents.size();
+        int matches = 0;
+
+        for (int round = 0; round < gamesPerOpponent; round++) {
+            List<Candidate> racing = new ArrayList<>();
+            List<Future<MatchResult>> futures = new ArrayList<>();
+            for (Candidate candidate : candidates) {
+                if (candidate.stopped) {
+                    continue;
+                }
+                for (int opponent = 0; opponent < opponents.size(); opponent++) {
+                    long matchSeed = TournamentRunner.matchSeed(generationSeed, round * opponents.size() + opponent);
+                    Class<? extends PlayerBot> opponentClass = opponents.get(opponent);
+                    boolean firstSeat = round % 2 == 0;
+                    racing.add(candidate);
+                    futures.add(executor.submit(() -> play(candidate.unit, opponentClass, firstSeat, matchSeed)));
+                }
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                record(racing.get(i), getResult(futures.get(i)), round % 2 == 0 ? MatchResult.BOT1 : MatchResult.BOT2);
+            }
+            matches += futures.size();
+            stopHopelessCandidates(candidates, totalGames);
+        }
+        return matches;
+    }
+
+    private static MatchResult getResult(Future<MatchResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tuning interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Match failed", e.getCause());
+        }
+    }
+
+    private MatchResult play(double[] unit, Class<? extends PlayerBot> opponentClass, boolean firstSeat, long matchSeed)
+            throws ReflectiveOperationException {
+        PlayerBot tuned = tunedBot.getDeclaredConstructor().newInstance();
+        ((Tunable) tuned).setParameterValues(fromUnit(unit));
+        PlayerBot opponent = opponentClass.getDeclaredConstructor().newInstance();
+        if (firstSeat) {
+            TournamentRunner.seedBots(tuned, opponent, matchSeed);
+        } else {
+            TournamentRunner.seedBots(opponent, tuned, matchSeed);
+        }
+        return firstSeat ? engine.playMatch(tuned, opponent, matchSeed) : engine.playMatch(opponent, tuned, matchSeed);
+    }
+
+    private static void record(Candidate candidate, MatchResult result, int seat) {
+        candidate.games++;
+        if (result.getWinner() == MatchResult.DRAW) {
+            candidate.points += 0.5;
+        } else if (result.getWinner() == seat) {
+            candidate.points += 1;
+        }
+        candidate.skippedTurns += seat == MatchResult.BOT1 ? result.getSkippedTurns1() : result.getSkippedTurns2();
+        if (candidate.firstException == null) {
+            candidate.firstException = seat == MatchResult.BOT1 ? result.getException1() : result.getException2();
+        }
+        int cells = seat == MatchResult.BOT1 ? result.getCells1() : result.getCells2();
+        int allCells = result.getCells1() + result.getCells2();
+        candidate.cellShare += allCells == 0 ? 0.5 : (double) cells / allCells;
+    }
+
+    // Stop candidates whose best possible score stays below what the weakest elite member already has for sure
+    private void stopHopelessCandidates(List<Candidate> candidates, int totalGames) {
+        double[] guaranteed = new double[candidates.size()];
+        for (int i = 0; i < candidates.size(); i++) {
+            guaranteed[i] = candidates.get(i).points;
+        }
+        Arrays.sort(guaranteed);
+        double eliteCutoff = guaranteed[guaranteed.length - eliteCount];
+
+        for (Candidate candidate : candidates) {
+            if (!candidate.stopped && candidate.points + (totalGames - candidate.games) < eliteCutoff) {
+                candidate.stopped = true;
+            }
+        }
+    }
+
+    private List<double[]> breed(List<Candidate> ranked) {
+        Random random = new Random(TournamentRunner.matchSeed(seed, -2 - generation));
+        List<double[]> next = new ArrayList<>();
+        for (int i = 0; i < eliteCount; i++) {
+            next.add(ranked.get(i).unit);
+        }
+
+        // Parents come from the better half, picked by binary tournament
+        int parentPool = Math.max(eliteCount, ranked.size() / 2);
+        while (next.size() < populationSize) {
+            double[] mother = ranked.get(Math.min(random.nextInt(parentPool), random.nextInt(parentPool))).unit;
+            double[] father = ranked.get(Math.min(random.nextInt(parentPool), random.nextInt(parentPool))).unit;
+            double[] child = new double[mother.length];
+            for (int i = 0; i < child.length; i++) {
+                double gene = random.nextBoolean() ? mother[i] : father[i];
+                child[i] = Math.max(0, Math.min(1, gene + random.nextGaussian() * mutationSigma));
+            }
+            next.add(child);
+        }
+        return next;
+    }
+
+    private void report(List<Candidate> ranked, int matches, long millis) {
+        int stopped = 0;
+        int skippedTurns = 0;
+        String firstException = null;
+        for (Candidate candidate : ranked) {
+            if (candidate.stopped) {
+                stopped++;
+            }
+            skippedTurns += candidate.skippedTurns;
+            if (firstException == null) {
+                firstException = candidate.firstException;
+            }
+        }
+        Candidate best = ranked.get(0);
+        System.out.println(String.format(Locale.ROOT,
+                "Generation %d: best %.3f (cell share %.3f), %d of %d candidates stopped early, %d matches in %d ms",
+                generation, best.getFitness(), best.getCellShare(), stopped, ranked.size(), matches, millis));
+        System.out.println("  " + formatValues(fromUnit(best.unit)));
+        if (skippedTurns > 0) {
+            System.out.println("  " + skippedTurns + " turns of the tuned bot skipped"
+                    + (firstException == null ? "" : ", first exception " + firstException));
+        }
+    }
+
+    public String formatValues(double[] values) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(parameters.get(i).getName()).append(" = ").append(parameters.get(i).format(values[i]));
+        }
+        return builder.toString();
+    }
+
+    private double[] fromUnit(double[] unit) {
+        double[] values = new double[unit.length];
+        for (int i = 0; i < unit.length; i++) {
+            values[i] = parameters.get(i).fromUnit(unit[i]);
+        }
+        return values;
+    }
+
+    private double[] toUnit(double[] values) {
+        double[] unit = new double[values.length];
+        for (int i = 0; i < values.length; i++) {
+            unit[i] = parameters.get(i).toUnit(values[i]);
+        }
+        return unit;
+    }
+
+    private String parameterNames() {
+        StringBuilder builder = new StringBuilder();
+        for (Parameter parameter : parameters) {
+            builder.append(builder.length() == 0 ? "" : ",").append(parameter.getName());
+        }
+        return builder.toString();
+    }
+
+    // Written to a temporary file first, so an interrupted run never leaves a truncated checkpoint behind
+    private void saveCheckpoint() throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("bot", tunedBot.getName());
+        properties.setProperty("parameters", parameterNames());
+        properties.setProperty("seed", Long.toString(seed));
+        properties.setProperty("generation", Integer.toString(generation));
+        properties.setProperty("best.fitness", Double.toString(bestFitness));
+        properties.setProperty("best", joinVector(bestUnit));
+        for (int i = 0; i < population.size(); i++) {
+            properties.setProperty("population." + i, joinVector(population.get(i)));
+        }
+
+        Path directory = checkpoint.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        Path temporary = Files.createTempFile(directory, "checkpoint", ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Parameter tuner checkpoint, vectors are points of the unit cube");
+        }
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private boolean loadCheckpoint() throws IOException {
+        if (checkpoint == null || !Files.exists(checkpoint)) {
+            return false;
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(checkpoint, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        if (!tunedBot.getName().equals(properties.getProperty("bot"))
+                || !parameterNames().equals(properties.getProperty("parameters"))
+                || !Long.toString(seed).equals(properties.getProperty("seed"))) {
+            throw new IllegalStateException("Checkpoint " + checkpoint + " belongs to another bot, parameter set or seed");
+        }
+
+        generation = Integer.parseInt(properties.getProperty("generation"));
+        bestFitness = Double.parseDouble(properties.getProperty("best.fitness"));
+        bestUnit = parseVector(properties.getProperty("best"));
+        population = new ArrayList<>();
+        for (int i = 0; properties.containsKey("population." + i); i++) {
+            population.add(parseVector(properties.getProperty("population." + i)));
+        }
+        populationSize = population.size();
+        System.out.println("Resuming at generation " + generation + " from " + checkpoint);
+        return true;
+    }
+
+    private static String joinVector(double[] vector) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < vector.length; i++) {
+            builder.append(i == 0 ? "" : ",").append(vector[i]);
+        }
+        return builder.toString();
+    }
+
+    private static double[] parseVector(String text) {
+        String[] parts = text.split(",");
+        double[] vector = new double[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            vector[i] = Double.parseDouble(parts[i]);
+        }
+        return vector;
+    }
+
+    /**
+     * Usage: {@code ParameterTuner [--engine <class>] [--threads n] [--population n] [--elite n] [--games n]
+     * [--generations n] [--seed s] [--checkpoint file] <tuned bot class> <opponent class>...}
+     *
+     * {@code --games} is the number of matches per opponent and candidate in each generation. The checkpoint
+     * defaults to {@code tuning/<bot>.properties}; an existing checkpoint is resumed, so rerunning the same command
+     * with more generations continues the search. Prints the best candidate of every generation and the best
+     * parameter values at the end.
+     */
+    public static void main(String[] args) throws Exception {
+        String engineClass = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int populationSize = 16;
+        int eliteCount = 4;
+        int games = 4;
+        int generations = 10;
+        long seed = 1;
+        Path checkpoint = null;
+        List<Class<? extends PlayerBot>> bots = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--engine":
+                    engineClass = args[++i];
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--population":
+                    populationSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--elite":
+                    eliteCount = Integer.parseInt(args[++i]);
+                    break;
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--generations":
+                    generations = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--checkpoint":
+                    checkpoint = Paths.get(args[++i]);
+                    break;
+                default:
+                    bots.add(TournamentRunner.loadBotClass(args[i]));
+            }
+        }
+
+        if (bots.size() < 2) {
+            System.err.println("Usage: ParameterTuner [--engine <class>] [--threads n] [--population n] [--elite n]"
+                    + " [--games n] [--generations n] [--seed s] [--checkpoint file] <tuned bot> <opponent>...");
+            System.exit(1);
+        }
+
+        MatchEngine engine = engineClass == null
+                ? new GameSimulator()
+                : (MatchEngine) Class.forName(engineClass).getDeclaredConstructor().newInstance();
+        Class<? extends PlayerBot> tunedBot = bots.get(0);
+        if (checkpoint == null) {
+            checkpoint = Paths.get("tuning", tunedBot.getSimpleName() + ".properties");
+        }
+
+        ParameterTuner tuner = new ParameterTuner(engine, threads, tunedBot, bots.subList(1, bots.size()), seed)
+                .setPopulationSize(populationSize)
+                .setEliteCount(eliteCount)
+                .setGamesPerOpponent(games)
+                .setCheckpoint(checkpoint);
+        tuner.run(generations);
+
+        System.out.println(String.format(Locale.ROOT, "Best after %d generations (%.3f): %s",
+                tuner.getGeneration(), tuner.getBestFitness(), tuner.formatValues(tuner.getBestValues())));
+    }
+}
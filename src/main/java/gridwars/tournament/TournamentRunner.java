@@ -0,0 +1,365 @@
+package gridwars.tournament;
+
+import cern.ais.gridwars.api.bot.PlayerBot;
+import gridwars.replay.ReplayRecorder;
+import gridwars.simulator.GameSimulator;
+import gridwars.utils.Instrumented;
+import gridwars.utils.Seedable;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays round-robin or Swiss tournaments between bot classes on a fixed pool of worker threads.
+ *
+ * Every match gets fresh bot instances and its own seed derived from the tournament seed and the match index. The
+ * seed fixes the start cells, and bots that implement {@link Seedable} have their random generator seeded from it
+ * as well, so such bots play the same match again for the same seed, whatever the number of threads or the order
+ * in which the matches complete. That does not hold for bots with unseeded randomness, nor for turns in which a bot
+ * cuts its decisions short at its turn deadline, as that depends on timing. Matches share no mutable state, which
+ * lets the throughput scale with the number of cores.
+ */
+public class TournamentRunner {
+    private static final String DEFAULT_BOT_PACKAGE = "gridwars.starter.";
+
+    private final MatchEngine engine;
+    private final int threads;
+    private Path metricsDirectory;
+    private Path replayDirectory;
+    // Simple class names shared by several bots of the current tournament, shown with their package instead
+    private Set<String> sharedSimpleNames = Collections.emptySet();
+
+    public TournamentRunner(MatchEngine engine, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one worker thread is required");
+        }
+        this.engine = engine;
+        this.threads = threads;
+    }
+
+    // Write the per-turn metrics of every instrumented bot to this directory after each match
+    public void setMetricsDirectory(Path metricsDirectory) {
+        this.metricsDirectory = metricsDirectory;
+    }
+
+    // Record a binary replay of both bots of every match to this directory
+    public void setReplayDirectory(Path replayDirectory) {
+        this.replayDirectory = replayDirectory;
+    }
+
+    private static class Pairing {
+        final Class<? extends PlayerBot> bot1;
+        final Class<? extends PlayerBot> bot2;
+        final long seed;
+        final int index;
+
+        Pairing(Class<? extends PlayerBot> bot1, Class<? extends PlayerBot> bot2, long seed, int index) {
+            this.bot1 = bot1;
+            this.bot2 = bot2;
+            this.seed = seed;
+            this.index = index;
+        }
+    }
+
+    // Every bot plays every other bot the given number of times, alternating seats
+    public List<MatchResult> playRoundRobin(List<Class<? extends PlayerBot>> bots, int gamesPerPairing, long seed) {
+        findSharedSimpleNames(bots);
+        List<Pairing> pairings = new ArrayList<>();
+        for (int i = 0; i < bots.size(); i++) {
+            for (int j = i + 1; j < bots.size(); j++) {
+                for (int game = 0; game < gamesPerPairing; game++) {
+                    int index = pairings.size();
+                    if (game % 2 == 0) {
+                        pairings.add(new Pairing(bots.get(i), bots.get(j), matchSeed(seed, index), index));
+                    } else {
+                        pairings.add(new Pairing(bots.get(j), bots.get(i), matchSeed(seed, index), index));
+                    }
+                }
+            }
+        }
+        return playAll(pairings);
+    }
+
+    // Each round pairs bots with neighbouring scores, avoiding rematches where the standings allow; with an odd
+    // number of bots the last unpaired one sits the round out
+    public List<MatchResult> playSwiss(List<Class<? extends PlayerBot>> bots, int rounds, long seed) {
+        findSharedSimpleNames(bots);
+        List<MatchResult> results = new ArrayList<>();
+        // Keyed by the full class name; the names in the results are shortened for display
+        Map<String, Double> points = new HashMap<>();
+        Set<String> played = new HashSet<>();
+        List<Class<? extends PlayerBot>> order = new ArrayList<>(bots);
+
+        for (int round = 0; round < rounds; round++) {
+            order.sort(Comparator.comparingDouble(bot -> -points.getOrDefault(bot.getName(), 0.0)));
+
+            List<Pairing> pairings = new ArrayList<>();
+            List<Class<? extends PlayerBot>> unpaired = new ArrayList<>(order);
+            while (unpaired.size() >= 2) {
+                Class<? extends PlayerBot> first = unpaired.remove(0);
+                // The closest-ranked bot it has not played yet, or the closest one if it has played them all
+                int opponent = 0;
+                for (int i = 0; i < unpaired.size(); i++) {
+                    if (!played.contains(pairingKey(first, unpaired.get(i)))) {
+                        opponent = i;
+                        break;
+                    }
+                }
+                Class<? extends PlayerBot> second = unpaired.remove(opponent);
+                played.add(pairingKey(first, second));
+
+                int index = results.size() + pairings.size();
+                if (round % 2 == 0) {
+                    pairings.add(new Pairing(first, second, matchSeed(seed, index), index));
+                } else {
+                    pairings.add(new Pairing(second, first, matchSeed(seed, index), index));
+                }
+            }
+
+            List<MatchResult> roundResults = playAll(pairings);
+            for (int i = 0; i < pairings.size(); i++) {
+                MatchResult result = roundResults.get(i);
+                points.merge(pairings.get(i).bot1.getName(), score(result, MatchResult.BOT1), Double::sum);
+                points.merge(pairings.get(i).bot2.getName(), score(result, MatchResult.BOT2), Double::sum);
+                results.add(result);
+            }
+        }
+        return results;
+    }
+
+    private void findSharedSimpleNames(List<Class<? extends PlayerBot>> bots) {
+        Set<String> seen = new HashSet<>();
+        Set<String> shared = new HashSet<>();
+        for (Class<? extends PlayerBot> bot : new LinkedHashSet<>(bots)) {
+            if (!seen.add(bot.getSimpleName())) {
+                shared.add(bot.getSimpleName());
+            }
+        }
+        sharedSimpleNames = shared;
+    }
+
+    // Name of the bot in results and standings: the simple class name unless another bot of the tournament shares it
+    private String displayName(Class<? extends PlayerBot> bot) {
+        return sharedSimpleNames.contains(bot.getSimpleName()) ? bot.getName() : bot.getSimpleName();
+    }
+
+    private static String pairingKey(Class<? extends PlayerBot> bot1, Class<? extends PlayerBot> bot2) {
+        String name1 = bot1.getName();
+        String name2 = bot2.getName();
+        return name1.compareTo(name2) < 0 ? name1 + ' ' + name2 : name2 + ' ' + name1;
+    }
+
+    private static double score(MatchResult result, int seat) {
+        if (result.getWinner() == MatchResult.DRAW) {
+            return 0.5;
+        }
+        return result.getWinner() == seat ? 1.0 : 0.0;
+    }
+
+    private List<MatchResult> playAll(List<Pairing> pairings) {
+        AtomicInteger workerCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "tournament-worker-" + workerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<MatchResult>> futures = new ArrayList<>(pairings.size());
+            for (Pairing pairing : pairings) {
+                futures.add(executor.submit(() -> play(pairing)));
+            }
+
+            // Collect in schedule order so the output does not depend on thread timing
+            List<MatchResult> results = new ArrayList<>(pairings.size());
+            for (Future<MatchResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Tournament interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Match failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private MatchResult play(Pairing pairing) throws ReflectiveOperationException, IOException {
+        PlayerBot bot1 = pairing.bot1.getDeclaredConstructor().newInstance();
+        PlayerBot bot2 = pairing.bot2.getDeclaredConstructor().newInstance();
+        seedBots(bot1, bot2, pairing.seed);
+        if (metricsDirectory != null) {
+            enableMetrics(bot1);
+            enableMetrics(bot2);
+        }
+
+        MatchResult result;
+        long start = System.nanoTime();
+        if (replayDirectory == null) {
+            result = engine.playMatch(bot1, bot2, pairing.seed);
+        } else {
+            try (ReplayRecorder recorder1 = new ReplayRecorder(bot1, replayFile(pairing.index, 1, bot1));
+                 ReplayRecorder recorder2 = new ReplayRecorder(bot2, replayFile(pairing.index, 2, bot2))) {
+                result = engine.playMatch(recorder1, recorder2, pairing.seed);
+                recorder1.setOutcome(replayOutcome(result.getWinner(), MatchResult.BOT1));
+                recorder2.setOutcome(replayOutcome(result.getWinner(), MatchResult.BOT2));
+            }
+        }
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        if (metricsDirectory != null) {
+            writeMetrics(pairing.index, 1, bot1);
+            writeMetrics(pairing.index, 2, bot2);
+        }
+
+        return result.withNamesAndTime(displayName(pairing.bot1), displayName(pairing.bot2), millis);
+    }
+
+    private Path replayFile(int matchIndex, int seat, PlayerBot bot) {
+        return replayDirectory.resolve(String.format("match-%05d-bot%d-%s.gwr", matchIndex, seat, bot.getClass().getSimpleName()));
+    }
+
+    private static byte replayOutcome(int winner, int seat) {
+        return winner == MatchResult.DRAW ? ReplayRecorder.DRAWN
+                : winner == seat ? ReplayRecorder.WON : ReplayRecorder.LOST;
+    }
+
+    private static void enableMetrics(PlayerBot bot) {
+        if (bot instanceof Instrumented) {
+            ((Instrumented) bot).getTurnMetrics().setEnabled(true);
+        }
+    }
+
+    private void writeMetrics(int matchIndex, int seat, PlayerBot bot) throws IOException {
+        if (!(bot instanceof Instrumented)) {
+            return;
+        }
+        String fileName = String.format("match-%05d-bot%d-%s.csv", matchIndex, seat, bot.getClass().getSimpleName());
+        try (Writer writer = Files.newBufferedWriter(metricsDirectory.resolve(fileName), StandardCharsets.UTF_8)) {
+            ((Instrumented) bot).getTurnMetrics().writeCsv(writer);
+        }
+    }
+
+    // Seed the random decisions of both bots from the match seed, each seat with its own sequence
+    static void seedBots(PlayerBot bot1, PlayerBot bot2, long matchSeed) {
+        if (bot1 instanceof Seedable) {
+            ((Seedable) bot1).setRandomSeed(matchSeed(matchSeed, MatchResult.BOT1));
+        }
+        if (bot2 instanceof Seedable) {
+            ((Seedable) bot2).setRandomSeed(matchSeed(matchSeed, MatchResult.BOT2));
+        }
+    }
+
+    // SplitMix64 step, so neighbouring match indices get unrelated seeds
+    static long matchSeed(long tournamentSeed, int matchIndex) {
+        long z = tournamentSeed + (matchIndex + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Class<? extends PlayerBot> loadBotClass(String name) throws ClassNotFoundException {
+        String className = name.contains(".") ? name : DEFAULT_BOT_PACKAGE + name;
+        Class<?> botClass = Class.forName(className);
+        if (!PlayerBot.class.isAssignableFrom(botClass)) {
+            throw new IllegalArgumentException(className + " does not implement PlayerBot");
+        }
+        return (Class<? extends PlayerBot>) botClass;
+    }
+
+    /**
+     * Usage: {@code TournamentRunner [--engine <class>] [--threads n] [--games n] [--swiss rounds] [--seed s]
+     * [--out dir] [--metrics dir] [--replays dir] <bot class>...}
+     *
+     * Matches are played on the {@link GameSimulator} unless another engine class is given. Bot classes without a
+     * package are looked up in {@code gridwars.starter}. Writes {@code matches.csv} and
+     * {@code summary.json} to the output directory and prints the standings. With {@code --metrics}, the per-turn
+     * metrics of instrumented bots are written to one CSV file per bot and match, and with {@code --replays} a binary
+     * replay of every bot and match is recorded.
+     */
+    public static void main(String[] args) throws Exception {
+        String engineClass = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int games = 10;
+        int swissRounds = 0;
+        long seed = System.currentTimeMillis();
+        Path outputDirectory = Paths.get("tournament");
+        Path metricsDirectory = null;
+        Path replayDirectory = null;
+        List<Class<? extends PlayerBot>> bots = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--engine":
+                    engineClass = args[++i];
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--swiss":
+                    swissRounds = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--out":
+                    outputDirectory = Paths.get(args[++i]);
+                    break;
+                case "--metrics":
+                    metricsDirectory = Paths.get(args[++i]);
+                    break;
+                case "--replays":
+                    replayDirectory = Paths.get(args[++i]);
+                    break;
+                default:
+                    bots.add(loadBotClass(args[i]));
+            }
+        }
+
+        if (bots.size() < 2) {
+            System.err.println("Usage: TournamentRunner [--engine <class>] [--threads n] [--games n] [--swiss rounds]"
+                    + " [--seed s] [--out dir] [--metrics dir] [--replays dir] <bot class> <bot class>...");
+            System.exit(1);
+        }
+
+        MatchEngine engine = engineClass == null
+                ? new GameSimulator()
+                : (MatchEngine) Class.forName(engineClass).getDeclaredConstructor().newInstance();
+        TournamentRunner runner = new TournamentRunner(engine, threads);
+        if (metricsDirectory != null) {
+            Files.createDirectories(metricsDirectory);
+            runner.setMetricsDirectory(metricsDirectory);
+        }
+        if (replayDirectory != null) {
+            Files.createDirectories(replayDirectory);
+            runner.setReplayDirectory(replayDirectory);
+        }
+
+        long start = System.nanoTime();
+        List<MatchResult> results = swissRounds > 0
+                ? runner.playSwiss(bots, swissRounds, seed)
+                : runner.playRoundRobin(bots, games, seed);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        TournamentSummary summary = new TournamentSummary(results);
+        Files.createDirectories(outputDirectory);
+        summary.writeCsv(outputDirectory.resolve("matches.csv"));
+        summary.writeJson(outputDirectory.resolve("summary.json"));
+
+        System.out.println(summary);
+        System.out.println(results.size() + " matches on " + threads + " threads in " + millis + " ms (seed " + seed + ")");
+    }
+}
@@ -0,0 +1,172 @@
+package gridwars.tournament;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Aggregated standings of a list of match results, with CSV and JSON export.
+ */
+public class TournamentSummary {
+
+    /**
+     * Accumulated results of one bot over all of its matches, regardless of the seat it played in.
+     */
+    public static class Standing {
+        private final String bot;
+        private int matches;
+        private int wins;
+        private int losses;
+        private int draws;
+        private long cells;
+        private long population;
+        private int skippedTurns;
+        private String firstException;
+
+        Standing(String bot) {
+            this.bot = bot;
+        }
+
+        void add(int cellCount, long populationCount, boolean won, boolean lost, int skipped, String exception) {
+            matches++;
+            cells += cellCount;
+            population += populationCount;
+            skippedTurns += skipped;
+            if (firstException == null) {
+                firstException = exception;
+            }
+            if (won) {
+                wins++;
+            } else if (lost) {
+                losses++;
+            } else {
+                draws++;
+            }
+        }
+
+        public String getBot() {
+            return bot;
+        }
+
+        public int getMatches() {
+            return matches;
+        }
+
+        public int getWins() {
+            return wins;
+        }
+
+        public int getLosses() {
+            return losses;
+        }
+
+        public int getDraws() {
+            return draws;
+        }
+
+        public double getPoints() {
+            return wins + draws * 0.5;
+        }
+
+        public double getAverageCells() {
+            return matches == 0 ? 0 : (double) cells / matches;
+        }
+
+        public double getAveragePopulation() {
+            return matches == 0 ? 0 : (double) population / matches;
+        }
+
+        // Turns skipped over all matches because the bot threw or sent invalid commands
+        public int getSkippedTurns() {
+            return skippedTurns;
+        }
+
+        // Class of the first exception the bot threw in the matches in result order, or null
+        public String getFirstException() {
+            return firstException;
+        }
+    }
+
+    private final List<MatchResult> results;
+    private final List<Standing> standings;
+
+    public TournamentSummary(List<MatchResult> results) {
+        this.results = results;
+
+        Map<String, Standing> byBot = new LinkedHashMap<>();
+        for (MatchResult result : results) {
+            byBot.computeIfAbsent(result.getBot1(), Standing::new).add(result.getCells1(), result.getPopulation1(),
+                    result.getWinner() == MatchResult.BOT1, result.getWinner() == MatchResult.BOT2,
+                    result.getSkippedTurns1(), result.getException1());
+            byBot.computeIfAbsent(result.getBot2(), Standing::new).add(result.getCells2(), result.getPopulation2(),
+                    result.getWinner() == MatchResult.BOT2, result.getWinner() == MatchResult.BOT1,
+                    result.getSkippedTurns2(), result.getException2());
+        }
+
+        standings = new ArrayList<>(byBot.values());
+        standings.sort(Comparator.comparingDouble(Standing::getPoints).reversed()
+                .thenComparing(Comparator.comparingDouble(Standing::getAverageCells).reversed()));
+    }
+
+    public List<MatchResult> getResults() {
+        return results;
+    }
+
+    // Standings sorted by points, then by average territory
+    public List<Standing> getStandings() {
+        return standings;
+    }
+
+    // One row per match
+    public void writeCsv(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(MatchResult.CSV_HEADER);
+            writer.write('\n');
+            for (MatchResult result : results) {
+                writer.write(result.toCsvRow());
+                writer.write('\n');
+            }
+        }
+    }
+
+    // Standings only, matches are in the CSV
+    public void writeJson(Path file) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write("{\n  \"matches\": " + results.size() + ",\n  \"standings\": [");
+            for (int i = 0; i < standings.size(); i++) {
+                Standing standing = standings.get(i);
+                writer.write(i == 0 ? "\n" : ",\n");
+                writer.write(String.format(Locale.ROOT,
+                        "    {\"bot\": \"%s\", \"matches\": %d, \"wins\": %d, \"losses\": %d, \"draws\": %d, "
+                                + "\"points\": %.1f, \"averageCells\": %.2f, \"averagePopulation\": %.2f, "
+                                + "\"skippedTurns\": %d, \"firstException\": %s}",
+                        standing.getBot(), standing.getMatches(), standing.getWins(), standing.getLosses(),
+                        standing.getDraws(), standing.getPoints(), standing.getAverageCells(),
+                        standing.getAveragePopulation(), standing.getSkippedTurns(),
+                        standing.getFirstException() == null ? "null" : "\"" + standing.getFirstException() + "\""));
+            }
+            writer.write("\n  ]\n}\n");
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "%-24s %7s %6s %6s %6s %8s %10s %8s%n",
+                "bot", "matches", "wins", "losses", "draws", "points", "avg cells", "skipped"));
+        for (Standing standing : standings) {
+            builder.append(String.format(Locale.ROOT, "%-24s %7d %6d %6d %6d %8.1f %10.1f %8d%n",
+                    standing.getBot(), standing.getMatches(), standing.getWins(), standing.getLosses(),
+                    standing.getDraws(), standing.getPoints(), standing.getAverageCells(), standing.getSkippedTurns()));
+        }
+        for (Standing standing : standings) {
+            if (standing.getFirstException() != null) {
+                builder.append(String.format(Locale.ROOT, "%s threw %s%n", standing.getBot(), standing.getFirstException()));
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,480 @@
+package gridwars.tournament;
+
+import cern.ais.gridwars.api.UniverseView;
+import cern.ais.gridwars.api.bot.PlayerBot;
+import cern.ais.gridwars.api.command.MovementCommand;
+import gridwars.harness.Position;
+import gridwars.harness.PositionView;
+import gridwars.simulator.GameSimulator;
+import gridwars.utils.BoardSnapshot;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays a queue of matches in one long-lived JVM, with the bots warmed up first, and reports the turn times of every
+ * bot per match.
+ *
+ * The first matches of the queue (one by default) are played cold, right after the bot classes are loaded, as a
+ * fresh {@code ./gradlew run} would, and played again with the same seeds once the bots are warm; bots that
+ * implement {@code Seedable} then make the same decisions in both. Before the first warm match of a bot class, fresh
+ * instances of it play turns on synthetic boards of growing territories until the JIT compiler settles, i.e. until
+ * the compilation time of the JVM grows by less than a few milliseconds in several warmup rounds in a row. All
+ * further matches then run on compiled code, like the later matches of a long-running match server. The synthetic
+ * boards use the settings of the engine if it is a {@link GameSimulator}, and the competition defaults otherwise.
+ *
+ * Matches are played one at a time on the calling thread, so their timings do not disturb each other. Every match
+ * is reported with its phase, the mean and 99th percentile time of the turns of each bot, and the mean of its first
+ * {@value #EARLY_TURNS} turns, where cold runs differ most.
+ */
+public class WarmRunner {
+    static final int EARLY_TURNS = 20;
+    private static final int WARMUP_TURNS = 200;
+    private static final int SETTLED_ROUNDS = 3;
+
+    /**
+     * One queued match.
+     */
+    public static final class Matchup {
+        final Class<? extends PlayerBot> bot1;
+        final Class<? extends PlayerBot> bot2;
+        final long seed;
+
+        public Matchup(Class<? extends PlayerBot> bot1, Class<? extends PlayerBot> bot2, long seed) {
+            this.bot1 = bot1;
+            this.bot2 = bot2;
+            this.seed = seed;
+        }
+    }
+
+    /**
+     * Turn times of one bot in one match.
+     */
+    public static final class TurnTimes {
+        private long[] nanos = new long[256];
+        private int count;
+
+        void add(long turnNanos) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = turnNanos;
+        }
+
+        public int getTurnCount() {
+            return count;
+        }
+
+        public double getMeanMicros() {
+            return meanMicros(count);
+        }
+
+        // Mean of the first EARLY_TURNS turns
+        public double getEarlyMeanMicros() {
+            return meanMicros(Math.min(count, EARLY_TURNS));
+        }
+
+        public double getPercentileMicros(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(nanos, count);
+            Arrays.sort(sorted);
+            return sorted[Math.min(count - 1, (int) Math.ceil(percentile / 100 * count) - 1)] / 1000.0;
+        }
+
+        private double meanMicros(int turns) {
+            long total = 0;
+            for (int i = 0; i < turns; i++) {
+                total += nanos[i];
+            }
+            return turns == 0 ? 0 : total / 1000.0 / turns;
+        }
+    }
+
+    // Measures the getNextCommands calls of the wrapped bot
+    private static final class TimedBot implements PlayerBot {
+        final PlayerBot delegate;
+        final TurnTimes times = new TurnTimes();
+
+        TimedBot(PlayerBot delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void getNextCommands(UniverseView universeView, List<MovementCommand> commandList) {
+            long start = System.nanoTime();
+            try {
+                delegate.getNextCommands(universeView, commandList);
+            } finally {
+                times.add(System.nanoTime() - start);
+            }
+        }
+    }
+
+    private final MatchEngine engine;
+    private int coldMatches = 1;
+    private long settleMillis = 5;
+    private long maxWarmupMillis = 30_000;
+    private int universeSize;
+    private double growthRate;
+    private int maximumPopulation;
+    private int turnTimeOutInMilliseconds;
+    private int turnLimit;
+
+    private final Set<Class<? extends PlayerBot>> warmedUp = new HashSet<>();
+    private int playedMatches;
+    private final Map<String, double[]> totals = new TreeMap<>();
+
+    public WarmRunner(MatchEngine engine) {
+        this.engine = engine;
+        GameSimulator settings = engine instanceof GameSimulator ? (GameSimulator) engine : new GameSimulator();
+        universeSize = settings.getUniverseSize();
+        growthRate = settings.getGrowthRate();
+        maximumPopulation = settings.getMaximumPopulation();
+        turnTimeOutInMilliseconds = settings.getTurnTimeOutInMilliseconds();
+        turnLimit = settings.getRoundLimit() * 2;
+    }
+
+    // Number of matches at the head of the queue played before any warmup
+    public WarmRunner setColdMatches(int coldMatches) {
+        this.coldMatches = coldMatches;
+        return this;
+    }
+
+    // Warmup ends once a round compiles for less than settleMillis, several rounds in a row, or after maxWarmupMillis
+    public WarmRunner setWarmup(long settleMillis, long maxWarmupMillis) {
+        this.settleMillis = settleMillis;
+        this.maxWarmupMillis = maxWarmupMillis;
+        return this;
+    }
+
+    // Size of the synthetic warmup boards; should match the universe of the engine
+    public WarmRunner setUniverseSize(int universeSize) {
+        this.universeSize = universeSize;
+        return this;
+    }
+
+    // Settings of the views handed to the bots during warmup; should match those of the engine
+    public WarmRunner setTurnTimeOut(int turnTimeOutInMilliseconds, int turnLimit) {
+        this.turnTimeOutInMilliseconds = turnTimeOutInMilliseconds;
+        this.turnLimit = turnLimit;
+        return this;
+    }
+
+    // Play the queued matches in order, reporting each one to the output as soon as it is over
+    public void play(Iterator<Matchup> queue, Writer output) throws IOException {
+        output.write(String.format(Locale.ROOT, "%-5s %-36s %20s %6s %6s %9s %9s %9s %9s %9s %9s%n", "phase", "match",
+                "seed", "winner", "turns", "mean1_us", "p99_1_us", "early1_us", "mean2_us", "p99_2_us", "early2_us"));
+        output.flush();
+        List<Matchup> coldQueue = new ArrayList<>();
+        while (queue.hasNext()) {
+            Matchup matchup = queue.next();
+            if (playedMatches < coldMatches) {
+                playMatch(matchup, true, output);
+                coldQueue.add(matchup);
+            } else {
+                replayWarm(coldQueue, output);
+                playWarm(matchup, output);
+            }
+            playedMatches++;
+        }
+        replayWarm(coldQueue, output);
+    }
+
+    // Play the cold matches again once warm, with the same seeds, so every cold match has a warm twin
+    private void replayWarm(List<Matchup> coldQueue, Writer output) throws IOException {
+        for (Matchup matchup : coldQueue) {
+            playWarm(matchup, output);
+        }
+        coldQueue.clear();
+    }
+
+    private void playWarm(Matchup matchup, Writer output) throws IOException {
+        warmUp(matchup.bot1, output);
+        warmUp(matchup.bot2, output);
+        playMatch(matchup, false, output);
+    }
+
+    private void playMatch(Matchup matchup, boolean cold, Writer output) throws IOException {
+        TimedBot bot1;
+        TimedBot bot2;
+        try {
+            PlayerBot delegate1 = matchup.bot1.getDeclaredConstructor().newInstance();
+            PlayerBot delegate2 = matchup.bot2.getDeclaredConstructor().newInstance();
+            TournamentRunner.seedBots(delegate1, delegate2, matchup.seed);
+            bot1 = new TimedBot(delegate1);
+            bot2 = new TimedBot(delegate2);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create bots", e);
+        }
+
+        long start = System.nanoTime();
+        MatchResult result = engine.playMatch(bot1, bot2, matchup.seed);
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        result = result.withNamesAndTime(matchup.bot1.getSimpleName(), matchup.bot2.getSimpleName(), millis);
+
+        String phase = cold ? "cold" : "warm";
+        addTotals(result.getBot1(), cold, bot1.times);
+        addTotals(result.getBot2(), cold, bot2.times);
+        output.write(String.format(Locale.ROOT, "%-5s %-36s %20d %6d %6d %9.0f %9.0f %9.0f %9.0f %9.0f %9.0f%n", phase,
+                result.getBot1() + " vs " + result.getBot2(), result.getSeed(), result.getWinner(), result.getTurns(),
+                bot1.times.getMeanMicros(), bot1.times.getPercentileMicros(99), bot1.times.getEarlyMeanMicros(),
+                bot2.times.getMeanMicros(), bot2.times.getPercentileMicros(99), bot2.times.getEarlyMeanMicros()));
+        output.flush();
+    }
+
+    // Sums of turn time and turns, and of early turn time and early turns, per bot and phase
+    private void addTotals(String bot, boolean cold, TurnTimes times) {
+        double[] sums = totals.computeIfAbsent(bot, name -> new double[8]);
+        int offset = cold ? 0 : 4;
+        int earlyTurns = Math.min(times.getTurnCount(), EARLY_TURNS);
+        sums[offset] += times.getMeanMicros() * times.getTurnCount();
+        sums[offset + 1] += times.getTurnCount();
+        sums[offset + 2] += times.getEarlyMeanMicros() * earlyTurns;
+        sums[offset + 3] += earlyTurns;
+    }
+
+    // Play turns of fresh instances of the bot class on synthetic boards until compilation settles
+    void warmUp(Class<? extends PlayerBot> botClass, Writer output) throws IOException {
+        if (!warmedUp.add(botClass)) {
+            return;
+        }
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        boolean monitored = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+
+        Random random = new Random(botClass.getName().hashCode());
+        Position position = new Position();
+        PositionView view = new PositionView(turnTimeOutInMilliseconds, turnLimit);
+        List<MovementCommand> commands = new ArrayList<>();
+        long start = System.nanoTime();
+        long lastCompileMillis = monitored ? compiler.getTotalCompilationTime() : 0;
+        int rounds = 0;
+        int settledRounds = 0;
+        int failures = 0;
+
+        while (settledRounds < SETTLED_ROUNDS
+                && TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < maxWarmupMillis) {
+            PlayerBot bot;
+            try {
+                bot = botClass.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot create " + botClass.getName(), e);
+            }
+            for (int turn = 0; turn < WARMUP_TURNS; turn += 2) {
+                syntheticPosition(position, random, turn);
+                view.load(position);
+                commands.clear();
+                try {
+                    bot.getNextCommands(view, commands);
+                } catch (RuntimeException e) {
+                    failures++; // Synthetic boards need not be reachable in a real match
+                }
+            }
+            rounds++;
+
+            if (monitored) {
+                long compileMillis = compiler.getTotalCompilationTime();
+                settledRounds = compileMillis - lastCompileMillis < settleMillis ? settledRounds + 1 : 0;
+                lastCompileMillis = compileMillis;
+            } else {
+                settledRounds = rounds >= 20 ? SETTLED_ROUNDS : 0; // No compiler statistics, fall back to fixed rounds
+            }
+        }
+
+        output.write(String.format(Locale.ROOT, "%-5s %s: %d rounds of %d turns in %d ms%s%s%n",
+                "jit", botClass.getSimpleName(), rounds, WARMUP_TURNS / 2, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start),
+                settledRounds < SETTLED_ROUNDS ? ", compilation not settled" : "",
+                failures > 0 ? ", " + failures + " failed turns" : ""));
+        output.flush();
+    }
+
+    // Two diamond-shaped territories that grow with the turn, with random populations and holes
+    private void syntheticPosition(Position position, Random random, int turn) {
+        int size = universeSize;
+        int radius = Math.min(size / 3, 2 + turn / 6);
+        int myX = random.nextInt(size);
+        int myY = random.nextInt(size);
+        int enemyX = (myX + size / 2 + random.nextInt(size / 4 + 1)) % size;
+        int enemyY = (myY + size / 2 + random.nextInt(size / 4 + 1)) % size;
+
+        byte[] owners = new byte[size * size];
+        int[] populations = new int[size * size];
+        for (int cell = 0; cell < owners.length; cell++) {
+            int myDistance = torusDistance(cell % size, cell / size, myX, myY, size);
+            int enemyDistance = torusDistance(cell % size, cell / size, enemyX, enemyY, size);
+            if (random.nextInt(10) == 0 || Math.min(myDistance, enemyDistance) > radius) {
+                continue;
+            }
+            owners[cell] = myDistance <= enemyDistance ? BoardSnapshot.MINE : BoardSnapshot.ENEMY;
+            populations[cell] = 1 + random.nextInt(100);
+        }
+        owners[myY * size + myX] = BoardSnapshot.MINE;
+        populations[myY * size + myX] = 1 + random.nextInt(100);
+        position.set("warmup", size, turn, growthRate, maximumPopulation, owners, populations);
+    }
+
+    private static int torusDistance(int x1, int y1, int x2, int y2, int size) {
+        int dx = Math.abs(x1 - x2);
+        int dy = Math.abs(y1 - y2);
+        return Math.min(dx, size - dx) + Math.min(dy, size - dy);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format(Locale.ROOT, "%-24s %10s %10s %8s %11s %11s %8s%n",
+                "Bot", "cold_us", "warm_us", "speedup", "early_cold", "early_warm", "speedup"));
+        for (Map.Entry<String, double[]> entry : totals.entrySet()) {
+            double[] sums = entry.getValue();
+            double cold = sums[1] == 0 ? Double.NaN : sums[0] / sums[1];
+            double warm = sums[5] == 0 ? Double.NaN : sums[4] / sums[5];
+            double earlyCold = sums[3] == 0 ? Double.NaN : sums[2] / sums[3];
+            double earlyWarm = sums[7] == 0 ? Double.NaN : sums[6] / sums[7];
+            builder.append(String.format(Locale.ROOT, "%-24s %10.0f %10.0f %8.1f %11.0f %11.0f %8.1f%n", entry.getKey(),
+                    cold, warm, cold / warm, earlyCold, earlyWarm, earlyCold / earlyWarm));
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Usage: {@code WarmRunner [--engine <class>] [--games n] [--seed s] [--cold n] [--settle ms] [--max-warmup ms]
+     * [<bot class>:<bot class>...]}
+     *
+     * Every given pairing is played {@code --games} times. Without pairings, the queue is read from standard input as
+     * lines {@code <bot class> <bot class> [games]} and played as they arrive, until the end of the input. Bot classes
+     * without a package are looked up in {@code gridwars.starter}. Prints one line per match and, at the end, the mean
+     * turn times of every bot in cold and in warm matches.
+     */
+    public static void main(String[] args) throws Exception {
+        String engineClass = null;
+        int games = 1;
+        long seed = System.currentTimeMillis();
+        int coldMatches = 1;
+        long settleMillis = 5;
+        long maxWarmupMillis = 30_000;
+        List<String> pairings = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--engine":
+                    engineClass = args[++i];
+                    break;
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--cold":
+                    coldMatches = Integer.parseInt(args[++i]);
+                    break;
+                case "--settle":
+                    settleMillis = Long.parseLong(args[++i]);
+                    break;
+                case "--max-warmup":
+                    maxWarmupMillis = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    if (!args[i].contains(":")) {
+                        System.err.println("Usage: WarmRunner [--engine <class>] [--games n] [--seed s] [--cold n]"
+                                + " [--settle ms] [--max-warmup ms] [<bot class>:<bot class>...]");
+                        System.exit(1);
+                    }
+                    pairings.add(args[i]);
+            }
+        }
+
+        MatchEngine engine = engineClass == null
+                ? new GameSimulator()
+                : (MatchEngine) Class.forName(engineClass).getDeclaredConstructor().newInstance();
+        WarmRunner runner = new WarmRunner(engine)
+                .setColdMatches(coldMatches)
+                .setWarmup(settleMillis, maxWarmupMillis);
+
+        Iterator<Matchup> queue;
+        if (pairings.isEmpty()) {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+            queue = new StreamedQueue(reader, games, seed);
+        } else {
+            // All bot classes are loaded before the first match, so class loading does not count as a cold turn
+            List<Matchup> matchups = new ArrayList<>();
+            for (String pairing : pairings) {
+                String[] bots = pairing.split(":");
+                Class<? extends PlayerBot> bot1 = TournamentRunner.loadBotClass(bots[0]);
+                Class<? extends PlayerBot> bot2 = TournamentRunner.loadBotClass(bots[1]);
+                for (int game = 0; game < games; game++) {
+                    matchups.add(new Matchup(bot1, bot2, TournamentRunner.matchSeed(seed, matchups.size())));
+                }
+            }
+            queue = matchups.iterator();
+        }
+
+        Writer output = new OutputStreamWriter(System.out, StandardCharsets.UTF_8);
+        runner.play(queue, output);
+        output.write(System.lineSeparator());
+        output.write(runner.toString());
+        output.flush();
+    }
+
+    // Matches read line by line from a reader, so matches can be queued while earlier ones are played
+    private static final class StreamedQueue implements Iterator<Matchup> {
+        private final BufferedReader reader;
+        private final int defaultGames;
+        private final long seed;
+        private final Deque<Matchup> pending = new ArrayDeque<>();
+        private int queued;
+
+        StreamedQueue(BufferedReader reader, int defaultGames, long seed) {
+            this.reader = reader;
+            this.defaultGames = defaultGames;
+            this.seed = seed;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                String line;
+                while (pending.isEmpty() && (line = reader.readLine()) != null) {
+                    String[] fields = line.trim().split("\\s+");
+                    if (line.trim().isEmpty() || fields[0].startsWith("#")) {
+                        continue;
+                    }
+                    if (fields.length < 2) {
+                        System.err.println("Skipping line without two bot classes: " + line);
+                        continue;
+                    }
+                    Class<? extends PlayerBot> bot1 = TournamentRunner.loadBotClass(fields[0]);
+                    Class<? extends PlayerBot> bot2 = TournamentRunner.loadBotClass(fields[1]);
+                    int games = fields.length > 2 ? Integer.parseInt(fields[2]) : defaultGames;
+                    for (int game = 0; game < games; game++) {
+                        pending.add(new Matchup(bot1, bot2, TournamentRunner.matchSeed(seed, queued++)));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (ClassNotFoundException | IllegalArgumentException e) {
+                System.err.println("Skipping line: " + e);
+                return hasNext();
+            }
+            return !pending.isEmpty();
+        }
+
+        @Override
+        public Matchup next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return pending.poll();
+        }
+    }
+}
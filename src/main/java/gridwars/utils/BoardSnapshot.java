@@ -0,0 +1,198 @@
+package gridwars.utils;
+
+import cern.ais.gridwars.api.Coordinates;
+import cern.ais.gridwars.api.UniverseView;
+import cern.ais.gridwars.api.command.MovementCommand;
+
+import java.util.List;
+
+/**
+ * Per-turn copy of the universe in flat primitive arrays.
+ *
+ * Cells are addressed by their index {@code y * universeSize + x}. Ownership and population are read from the
+ * {@link UniverseView} once per turn, and the toroidal neighbour of every cell in every direction comes from the
+ * shared {@link Geometry} of the universe, so neighbourhood lookups are plain array loads instead of API calls and
+ * {@link Coordinates} allocations.
+ *
+ * A snapshot is meant to be kept by the bot and refreshed with {@link #update(UniverseView)} at the start of
+ * every turn. The arrays are only reallocated when the universe size changes. Each update also records which cells
+ * changed their owner since the previous turn, so that per-cell state derived from ownership can be maintained
+ * incrementally.
+ */
+public class BoardSnapshot {
+    public static final byte EMPTY = 0;
+    public static final byte MINE = 1;
+    public static final byte ENEMY = 2;
+
+    public static final MovementCommand.Direction[] DIRECTIONS = MovementCommand.Direction.values();
+    public static final int DIRECTION_COUNT = DIRECTIONS.length;
+
+    private int universeSize;
+    private int cellCount;
+    private Geometry geometry;
+    private UniverseView universeView;
+    private byte[] owners = new byte[0];
+    private int[] populations = new int[0];
+    // Neighbour table of the geometry, laid out as [cell * DIRECTION_COUNT + direction.ordinal()]
+    private int[] neighbors = new int[0];
+    // Index of the direction pointing back, by direction index
+    private final int[] opposites = new int[DIRECTION_COUNT];
+
+    private int[] myCells = new int[0];
+    private Coordinates[] myCellCoordinates = new Coordinates[0];
+    private int myCellCount;
+    // Coordinates of every cell the bot has owned or asked for so far, by cell index
+    private Coordinates[] coordinatesByCell = new Coordinates[0];
+
+    private int[] changedCells = new int[0];
+    private int changedCount;
+
+    // Copy ownership and population of the whole universe for the current turn
+    public void update(UniverseView universeView) {
+        this.universeView = universeView;
+        int size = universeView.getUniverseSize();
+        if (size != universeSize) {
+            resize(universeView, size);
+        }
+
+        changedCount = 0;
+        int cell = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++, cell++) {
+                byte owner;
+                if (universeView.isEmpty(x, y)) {
+                    owner = EMPTY;
+                    populations[cell] = 0;
+                } else {
+                    owner = universeView.belongsToMe(x, y) ? MINE : ENEMY;
+                    populations[cell] = universeView.getPopulation(x, y);
+                }
+                if (owner != owners[cell]) {
+                    owners[cell] = owner;
+                    changedCells[changedCount++] = cell;
+                }
+            }
+        }
+
+        List<Coordinates> cells = universeView.getMyCells();
+        myCellCount = cells.size();
+        if (myCells.length < myCellCount) {
+            myCells = new int[Math.max(myCellCount, myCells.length * 2)];
+            myCellCoordinates = new Coordinates[myCells.length];
+        }
+        for (int i = 0; i < myCellCount; i++) {
+            Coordinates coordinates = cells.get(i);
+            myCells[i] = indexOf(coordinates);
+            myCellCoordinates[i] = coordinates;
+            coordinatesByCell[myCells[i]] = coordinates;
+        }
+    }
+
+    private void resize(UniverseView universeView, int size) {
+        universeSize = size;
+        cellCount = size * size;
+        owners = new byte[cellCount];
+        populations = new int[cellCount];
+        coordinatesByCell = new Coordinates[cellCount];
+        changedCells = new int[cellCount];
+        geometry = Geometry.forUniverse(universeView);
+        neighbors = geometry.neighbors;
+        for (int d = 0; d < DIRECTION_COUNT; d++) {
+            opposites[d] = geometry.getOpposite(d);
+        }
+    }
+
+    // Shared neighbour and ring tables of the universe
+    public Geometry getGeometry() {
+        return geometry;
+    }
+
+    public int getUniverseSize() {
+        return universeSize;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    public int indexOf(int x, int y) {
+        return y * universeSize + x;
+    }
+
+    public int indexOf(Coordinates coordinates) {
+        return coordinates.getY() * universeSize + coordinates.getX();
+    }
+
+    public int getX(int cell) {
+        return cell % universeSize;
+    }
+
+    public int getY(int cell) {
+        return cell / universeSize;
+    }
+
+    public int getNeighbor(int cell, MovementCommand.Direction direction) {
+        return neighbors[cell * DIRECTION_COUNT + direction.ordinal()];
+    }
+
+    public int getNeighbor(int cell, int directionIndex) {
+        return neighbors[cell * DIRECTION_COUNT + directionIndex];
+    }
+
+    public int getOpposite(int directionIndex) {
+        return opposites[directionIndex];
+    }
+
+    public byte getOwner(int cell) {
+        return owners[cell];
+    }
+
+    public boolean belongsToMe(int cell) {
+        return owners[cell] == MINE;
+    }
+
+    public boolean isEnemy(int cell) {
+        return owners[cell] == ENEMY;
+    }
+
+    public boolean isEmpty(int cell) {
+        return owners[cell] == EMPTY;
+    }
+
+    public int getPopulation(int cell) {
+        return populations[cell];
+    }
+
+    public int getMyCellCount() {
+        return myCellCount;
+    }
+
+    // Cell index of the i-th entry of UniverseView.getMyCells()
+    public int getMyCell(int i) {
+        return myCells[i];
+    }
+
+    // Coordinates of the i-th entry of UniverseView.getMyCells(), for building movement commands
+    public Coordinates getMyCellCoordinates(int i) {
+        return myCellCoordinates[i];
+    }
+
+    // Coordinates of a cell, for building movement commands; asked from the API on the first use of a cell only
+    public Coordinates getCoordinates(int cell) {
+        Coordinates coordinates = coordinatesByCell[cell];
+        if (coordinates == null) {
+            coordinates = universeView.getCoordinates(cell % universeSize, cell / universeSize);
+            coordinatesByCell[cell] = coordinates;
+        }
+        return coordinates;
+    }
+
+    // Number of cells whose owner changed in the last update
+    public int getChangedCount() {
+        return changedCount;
+    }
+
+    public int getChangedCell(int i) {
+        return changedCells[i];
+    }
+}
@@ -0,0 +1,97 @@
+package gridwars.utils;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-cell cache of a score that only depends on the owners of a cell and of its four neighbours, such as the
+ * expansion score of an empty cell.
+ *
+ * A score is computed on first request and kept until an update sees the owner of the cell or of one of its
+ * neighbours change, so cells next to several border cells are scored once per turn at most, and cells in quiet
+ * parts of the universe keep their score over many turns. Invalidation only visits the cells that changed owner,
+ * see {@link BoardSnapshot#getChangedCount()}.
+ *
+ * Lookups may run in parallel between two updates: every entry is a single {@code int} that holds either a score or
+ * the dirty marker, so a racing lookup at worst computes the same score twice.
+ */
+public class CellScoreCache {
+
+    /**
+     * Score of a cell on the snapshot. Must only read the owners of the cell and its neighbours, and must never return
+     * {@link Integer#MIN_VALUE}, which marks a dirty entry.
+     */
+    @FunctionalInterface
+    public interface CellScore {
+        int score(int cell, BoardSnapshot board);
+    }
+
+    private static final int DIRTY = Integer.MIN_VALUE;
+
+    private final CellScore score;
+    private BoardSnapshot board;
+    private int[] scores = new int[0];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long hitsAtUpdate;
+    private long missesAtUpdate;
+
+    public CellScoreCache(CellScore score) {
+        this.score = score;
+    }
+
+    // Call once per turn after the snapshot was updated, before any lookup
+    public void update(BoardSnapshot board) {
+        this.board = board;
+        hitsAtUpdate = hits.sum();
+        missesAtUpdate = misses.sum();
+        if (scores.length != board.getCellCount()) {
+            scores = new int[board.getCellCount()];
+            Arrays.fill(scores, DIRTY);
+            return;
+        }
+        for (int i = 0; i < board.getChangedCount(); i++) {
+            int cell = board.getChangedCell(i);
+            scores[cell] = DIRTY;
+            for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+                scores[board.getNeighbor(cell, d)] = DIRTY;
+            }
+        }
+    }
+
+    public int get(int cell) {
+        int cached = scores[cell];
+        if (cached != DIRTY) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        int computed = score.score(cell, board);
+        scores[cell] = computed;
+        return computed;
+    }
+
+    // Drop all scores, e.g. after changing parameters the score function reads
+    public void invalidateAll() {
+        Arrays.fill(scores, DIRTY);
+    }
+
+    // Lookups answered from the cache since the cache was created
+    public long getHits() {
+        return hits.sum();
+    }
+
+    // Lookups that had to compute the score since the cache was created
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getTurnHits() {
+        return hits.sum() - hitsAtUpdate;
+    }
+
+    public long getTurnMisses() {
+        return misses.sum() - missesAtUpdate;
+    }
+}
@@ -0,0 +1,261 @@
+package gridwars.utils;
+
+import cern.ais.gridwars.api.UniverseView;
+import cern.ais.gridwars.api.command.MovementCommand;
+
+import java.util.List;
+
+/**
+ * Final stage of a turn that rewrites the command list of a bot into fewer, always valid commands.
+ *
+ * In order, it
+ * <ol>
+ *     <li>drops commands that are empty, incomplete or that move from a cell the bot does not own, and merges
+ *     commands with the same cell and direction,</li>
+ *     <li>scales down the commands of a cell that moves out more than its population, so a single overdraw cannot
+ *     void the whole turn,</li>
+ *     <li>cancels opposing flows between two cells of the bot, keeping only the net flow, which lands the same
+ *     population in the same cells,</li>
+ *     <li>if enabled with {@link #setRedistributeRemainders}, hands out the remainder of even splits: when a cell
+ *     sends the same amount in several directions and keeps back the remainder of the division on top of its own
+ *     share, that remainder is moved out one troop per direction, so every part differs by at most one.</li>
+ * </ol>
+ * The total population is always conserved. Apart from clamped cells and redistributed remainders, every cell also
+ * ends the turn with the population the original commands would have left in it. Only the cells that have commands
+ * are visited.
+ *
+ * Remainders are only redistributed on request, since equal amounts in several directions are not always a split
+ * of the whole population: a bot that deliberately keeps a little more than it sends would get its moves rewritten.
+ * Bots whose splits come from dividing the population by the number of parts can turn it on.
+ *
+ * The arrays are kept between turns and only reallocated when the universe size changes.
+ */
+public class CommandCoalescer {
+    private static final MovementCommand.Direction[] DIRECTIONS = BoardSnapshot.DIRECTIONS;
+    private static final int DIRECTION_COUNT = BoardSnapshot.DIRECTION_COUNT;
+
+    private int universeSize = -1;
+    private Geometry geometry;
+    // Merged amount and first command, laid out as [cell * DIRECTION_COUNT + direction.ordinal()]
+    private int[] amounts = new int[0];
+    private MovementCommand[] commands = new MovementCommand[0];
+    private int[] populations = new int[0];
+    // Cells with commands, in the order of their first command
+    private int[] cells = new int[0];
+    private int cellCount;
+    private int[] cellStamps = new int[0];
+    private int stamp;
+
+    private boolean redistributeRemainders;
+
+    private int inputCommands;
+    private int outputCommands;
+    private int droppedCommands;
+    private long clampedPopulation;
+    private long canceledPopulation;
+    private long redistributedPopulation;
+
+    // Hand out the division remainder of even splits; off by default
+    public CommandCoalescer setRedistributeRemainders(boolean redistributeRemainders) {
+        this.redistributeRemainders = redistributeRemainders;
+        return this;
+    }
+
+    public void process(UniverseView universeView, List<MovementCommand> commandList) {
+        if (universeView.getUniverseSize() != universeSize) {
+            resize(universeView);
+        }
+        stamp++;
+        cellCount = 0;
+        inputCommands = commandList.size();
+        droppedCommands = 0;
+        clampedPopulation = 0;
+        canceledPopulation = 0;
+        redistributedPopulation = 0;
+
+        merge(universeView, commandList);
+        for (int i = 0; i < cellCount; i++) {
+            clamp(cells[i]);
+        }
+        if (universeSize > 2) {
+            for (int i = 0; i < cellCount; i++) {
+                cancelOpposingFlows(universeView, cells[i]);
+            }
+        }
+        if (redistributeRemainders) {
+            for (int i = 0; i < cellCount; i++) {
+                redistributeRemainder(cells[i]);
+            }
+        }
+        rebuild(commandList);
+    }
+
+    private void resize(UniverseView universeView) {
+        int size = universeView.getUniverseSize();
+        universeSize = size;
+        geometry = Geometry.forUniverse(universeView);
+        amounts = new int[size * size * DIRECTION_COUNT];
+        commands = new MovementCommand[size * size * DIRECTION_COUNT];
+        populations = new int[size * size];
+        cells = new int[size * size];
+        cellStamps = new int[size * size];
+        stamp = 0;
+    }
+
+    private void merge(UniverseView universeView, List<MovementCommand> commandList) {
+        for (MovementCommand command : commandList) {
+            if (command == null || command.getCoordinatesFrom() == null || command.getDirection() == null
+                    || command.getAmount() <= 0) {
+                droppedCommands++;
+                continue;
+            }
+            int x = Math.floorMod(command.getCoordinatesFrom().getX(), universeSize);
+            int y = Math.floorMod(command.getCoordinatesFrom().getY(), universeSize);
+            if (!universeView.belongsToMe(x, y)) {
+                droppedCommands++;
+                continue;
+            }
+
+            int cell = y * universeSize + x;
+            if (cellStamps[cell] != stamp) {
+                cellStamps[cell] = stamp;
+                cells[cellCount++] = cell;
+                populations[cell] = universeView.getPopulation(x, y);
+            }
+            int key = cell * DIRECTION_COUNT + command.getDirection().ordinal();
+            if (amounts[key] == 0) {
+                commands[key] = command;
+            }
+            amounts[key] += command.getAmount();
+        }
+    }
+
+    // Scale the commands of the cell down to its population, rounding every amount down
+    private void clamp(int cell) {
+        long total = outgoing(cell);
+        int population = populations[cell];
+        if (total <= population) {
+            return;
+        }
+        long kept = 0;
+        for (int d = 0; d < DIRECTION_COUNT; d++) {
+            int key = cell * DIRECTION_COUNT + d;
+            amounts[key] = (int) (amounts[key] * (long) population / total);
+            kept += amounts[key];
+        }
+        clampedPopulation += total - kept;
+    }
+
+    private void cancelOpposingFlows(UniverseView universeView, int cell) {
+        for (int d = 0; d < DIRECTION_COUNT; d++) {
+            int key = cell * DIRECTION_COUNT + d;
+            if (amounts[key] == 0) {
+                continue;
+            }
+            int target = geometry.getNeighbor(cell, d);
+            if (cellStamps[target] != stamp || target == cell) {
+                continue;
+            }
+
+            int backKey = target * DIRECTION_COUNT + geometry.getOpposite(d);
+            if (amounts[backKey] > 0 && universeView.belongsToMe(geometry.getX(target), geometry.getY(target))) {
+                int canceled = Math.min(amounts[key], amounts[backKey]);
+                amounts[key] -= canceled;
+                amounts[backKey] -= canceled;
+                canceledPopulation += 2L * canceled;
+            }
+        }
+    }
+
+    private void redistributeRemainder(int cell) {
+        int parts = 0;
+        int share = -1;
+        for (int d = 0; d < DIRECTION_COUNT; d++) {
+            int amount = amounts[cell * DIRECTION_COUNT + d];
+            if (amount == 0) {
+                continue;
+            }
+            if (share >= 0 && amount != share) {
+                return; // Not an even split
+            }
+            share = amount;
+            parts++;
+        }
+        if (parts < 2) {
+            return;
+        }
+
+        long remainder = populations[cell] - (long) parts * share - share;
+        if (remainder <= 0 || remainder > parts) {
+            return; // The cell keeps back no more than its share, or more than a division remainder
+        }
+        for (int d = 0; d < DIRECTION_COUNT && remainder > 0; d++) {
+            int key = cell * DIRECTION_COUNT + d;
+            if (amounts[key] > 0) {
+                amounts[key]++;
+                remainder--;
+                redistributedPopulation++;
+            }
+        }
+    }
+
+    // Overwrite the list in place: it is never empty in between, so a list that ignores additions after the turn
+    // deadline still holds the commands. There is at most one output command per input command.
+    private void rebuild(List<MovementCommand> commandList) {
+        int size = 0;
+        for (int i = 0; i < cellCount; i++) {
+            int cell = cells[i];
+            for (int d = 0; d < DIRECTION_COUNT; d++) {
+                int key = cell * DIRECTION_COUNT + d;
+                int amount = amounts[key];
+                if (amount > 0) {
+                    MovementCommand command = commands[key];
+                    commandList.set(size++, command.getAmount() == amount
+                            ? command
+                            : new MovementCommand(command.getCoordinatesFrom(), DIRECTIONS[d], amount));
+                }
+                amounts[key] = 0;
+                commands[key] = null;
+            }
+        }
+        if (size < commandList.size()) {
+            commandList.subList(size, commandList.size()).clear();
+        }
+        outputCommands = size;
+    }
+
+    private long outgoing(int cell) {
+        long total = 0;
+        for (int d = 0; d < DIRECTION_COUNT; d++) {
+            total += amounts[cell * DIRECTION_COUNT + d];
+        }
+        return total;
+    }
+
+    public int getInputCommands() {
+        return inputCommands;
+    }
+
+    public int getOutputCommands() {
+        return outputCommands;
+    }
+
+    // Commands of the last turn left out because they were empty, incomplete or moved from a cell of somebody else
+    public int getDroppedCommands() {
+        return droppedCommands;
+    }
+
+    // Population that overdrawing commands of the last turn asked for beyond what their cells held
+    public long getClampedPopulation() {
+        return clampedPopulation;
+    }
+
+    // Population of both directions of opposing flows that no longer moves back and forth
+    public long getCanceledPopulation() {
+        return canceledPopulation;
+    }
+
+    public long getRedistributedPopulation() {
+        return redistributedPopulation;
+    }
+}
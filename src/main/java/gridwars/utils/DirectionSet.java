@@ -0,0 +1,87 @@
+package gridwars.utils;
+
+import cern.ais.gridwars.api.command.MovementCommand;
+
+import java.util.Random;
+
+/**
+ * Set of movement directions packed into the low bits of an {@code int}, one bit per
+ * {@link MovementCommand.Direction#ordinal()}.
+ *
+ * Sets are plain values, so building, filtering and picking from them never allocates. To visit every direction
+ * in a set:
+ * <pre>
+ * for (int rest = set; rest != 0; rest = DirectionSet.removeFirst(rest)) {
+ *     MovementCommand.Direction direction = DirectionSet.first(rest);
+ * }
+ * </pre>
+ */
+public final class DirectionSet {
+    public static final int NONE = 0;
+    public static final int ALL = (1 << BoardSnapshot.DIRECTION_COUNT) - 1;
+
+    private DirectionSet() {
+    }
+
+    public static int of(MovementCommand.Direction direction) {
+        return 1 << direction.ordinal();
+    }
+
+    public static int add(int set, MovementCommand.Direction direction) {
+        return set | (1 << direction.ordinal());
+    }
+
+    public static int add(int set, int directionIndex) {
+        return set | (1 << directionIndex);
+    }
+
+    public static int remove(int set, MovementCommand.Direction direction) {
+        return set & ~(1 << direction.ordinal());
+    }
+
+    public static boolean contains(int set, MovementCommand.Direction direction) {
+        return (set & (1 << direction.ordinal())) != 0;
+    }
+
+    public static boolean contains(int set, int directionIndex) {
+        return (set & (1 << directionIndex)) != 0;
+    }
+
+    public static boolean isEmpty(int set) {
+        return set == NONE;
+    }
+
+    public static int size(int set) {
+        return Integer.bitCount(set);
+    }
+
+    // Direction with the lowest ordinal in the set
+    public static MovementCommand.Direction first(int set) {
+        if (set == NONE) {
+            throw new IllegalArgumentException("Direction set is empty");
+        }
+        return BoardSnapshot.DIRECTIONS[Integer.numberOfTrailingZeros(set)];
+    }
+
+    // The set without the direction returned by first(set)
+    public static int removeFirst(int set) {
+        return set & (set - 1);
+    }
+
+    // The n-th direction of the set in ordinal order
+    public static MovementCommand.Direction get(int set, int n) {
+        int rest = set;
+        for (int i = 0; i < n && rest != NONE; i++) {
+            rest = removeFirst(rest);
+        }
+        if (rest == NONE) {
+            throw new IndexOutOfBoundsException("Index " + n + " out of bounds for direction set of size " + size(set));
+        }
+        return first(rest);
+    }
+
+    // Pick a direction of the set uniformly at random
+    public static MovementCommand.Direction random(int set, Random random) {
+        return get(set, random.nextInt(size(set)));
+    }
+}
@@ -0,0 +1,66 @@
+package gridwars.utils;
+
+import java.util.Arrays;
+
+/**
+ * Distance of every cell to the nearest cell of a given owner, e.g. the nearest enemy or the nearest empty cell.
+ *
+ * The field is computed with one multi-source breadth-first search over the whole toroidal universe, so the
+ * distance is the wrapped Manhattan distance and is found through cells of any owner. After that, radius queries
+ * for any cell are a single array load. The search can be bounded by a maximum distance, which keeps its cost down
+ * when only small radii are queried; cells farther away are reported as {@link #UNREACHABLE}.
+ *
+ * The arrays are kept between turns and only reallocated when the universe size changes.
+ */
+public class DistanceField {
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private int[] distances = new int[0];
+    // Every cell is enqueued at most once, so a queue as large as the universe never wraps
+    private int[] queue = new int[0];
+
+    public void compute(BoardSnapshot board, byte owner) {
+        compute(board, owner, UNREACHABLE);
+    }
+
+    public void compute(BoardSnapshot board, byte owner, int maxDistance) {
+        int cellCount = board.getCellCount();
+        if (distances.length != cellCount) {
+            distances = new int[cellCount];
+            queue = new int[cellCount];
+        }
+        Arrays.fill(distances, UNREACHABLE);
+
+        int head = 0;
+        int tail = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            if (board.getOwner(cell) == owner) {
+                distances[cell] = 0;
+                queue[tail++] = cell;
+            }
+        }
+
+        while (head < tail) {
+            int cell = queue[head++];
+            int distance = distances[cell];
+            if (distance >= maxDistance) {
+                continue;
+            }
+            for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+                int neighbor = board.getNeighbor(cell, d);
+                if (distances[neighbor] == UNREACHABLE) {
+                    distances[neighbor] = distance + 1;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+    }
+
+    public int getDistance(int cell) {
+        return distances[cell];
+    }
+
+    public boolean isWithin(int cell, int radius) {
+        return distances[cell] <= radius;
+    }
+}
@@ -0,0 +1,111 @@
+package gridwars.utils;
+
+import cern.ais.gridwars.api.command.MovementCommand;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Gradient over the bot's territory that leads every interior cell to the nearest border cell.
+ *
+ * The field is built with one breadth-first sweep that starts at all border cells of a {@link FrontierIndex} and
+ * only moves through cells of the bot. Every interior cell remembers the direction it was reached from, which is a
+ * step down the gradient. Routing surplus population along those directions turns the territory into a pipeline
+ * that delivers growth to the front, instead of leaving it capped at the maximum population in the interior.
+ *
+ * A transfer never pushes its target above the maximum population, since the excess would be cut off at the end of
+ * the round: it is limited to the room the target has left after the moves already in the command list and the
+ * target's own routed surplus. Cells are routed from the border inwards, so that the surplus a target passes on is
+ * known when the cells behind it fill the room it leaves.
+ *
+ * The arrays are kept between turns and only reallocated when the universe size changes.
+ */
+public class FlowField {
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+    public static final int NO_DIRECTION = -1;
+
+    private int[] distances = new int[0];
+    private int[] downhill = new int[0];
+    private int[] queue = new int[0];
+    // Cells of the territory reached by the sweep, in queue, in order of increasing distance
+    private int reachedCount;
+    private int[] outgoing = new int[0];
+    private int[] incoming = new int[0];
+
+    public void compute(BoardSnapshot board, FrontierIndex frontier) {
+        int cellCount = board.getCellCount();
+        if (distances.length != cellCount) {
+            distances = new int[cellCount];
+            downhill = new int[cellCount];
+            queue = new int[cellCount];
+            outgoing = new int[cellCount];
+            incoming = new int[cellCount];
+        }
+        Arrays.fill(distances, UNREACHABLE);
+
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < frontier.getBorderCount(); i++) {
+            int cell = frontier.getBorderCell(i);
+            distances[cell] = 0;
+            downhill[cell] = NO_DIRECTION;
+            queue[tail++] = cell;
+        }
+
+        while (head < tail) {
+            int cell = queue[head++];
+            for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+                int neighbor = board.getNeighbor(cell, d);
+                if (distances[neighbor] == UNREACHABLE && board.belongsToMe(neighbor)) {
+                    distances[neighbor] = distances[cell] + 1;
+                    downhill[neighbor] = board.getOpposite(d);
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        reachedCount = tail;
+    }
+
+    // Steps from the cell to the nearest border cell through the territory; 0 on the border
+    public int getDistance(int cell) {
+        return distances[cell];
+    }
+
+    // Direction index of the next step towards the border, or NO_DIRECTION on the border and outside the territory
+    public int getDownhill(int cell) {
+        return distances[cell] == UNREACHABLE ? NO_DIRECTION : downhill[cell];
+    }
+
+    // Move what is above the reserve of each interior cell one step down the gradient, as far as the target has room
+    public void routeSurplus(BoardSnapshot board, List<MovementCommand> commandList, int reserve, int maximumPopulation,
+                             TurnDeadline deadline) {
+        Arrays.fill(outgoing, 0);
+        Arrays.fill(incoming, 0);
+        for (MovementCommand command : commandList) {
+            if (command.getCoordinatesFrom() != null && command.getDirection() != null) {
+                int cell = board.indexOf(command.getCoordinatesFrom());
+                outgoing[cell] += command.getAmount();
+                incoming[board.getNeighbor(cell, command.getDirection())] += command.getAmount();
+            }
+        }
+
+        for (int i = 0; i < reachedCount; i++) {
+            if (i % 64 == 0 && deadline.isExpired()) {
+                return;
+            }
+            int cell = queue[i];
+            int direction = downhill[cell];
+            if (direction == NO_DIRECTION) {
+                continue;
+            }
+            int target = board.getNeighbor(cell, direction);
+            int room = maximumPopulation - (board.getPopulation(target) - outgoing[target] + incoming[target]);
+            int amount = Math.min(board.getPopulation(cell) - outgoing[cell] - reserve, room);
+            if (amount > 0) {
+                commandList.add(new MovementCommand(board.getCoordinates(cell), BoardSnapshot.DIRECTIONS[direction], amount));
+                outgoing[cell] += amount;
+                incoming[target] += amount;
+            }
+        }
+    }
+}
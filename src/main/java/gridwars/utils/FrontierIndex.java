@@ -0,0 +1,106 @@
+package gridwars.utils;
+
+import java.util.Arrays;
+
+/**
+ * Set of border cells of the bot, maintained incrementally across turns.
+ *
+ * A border cell is a cell that belongs to the bot and has at least one neighbour that does not. Interior cells have
+ * no empty or enemy cell to move to, so strategies only need to look at the border. Instead of rescanning the whole
+ * territory, {@link #update(BoardSnapshot)} only revisits the cells whose owner changed since the previous turn and
+ * their neighbours, so its cost follows the number of changed cells rather than the size of the territory.
+ *
+ * The revisited cells of the last update are exposed as well, so that other per-cell state derived from the
+ * neighbourhood can be refreshed the same way. The index relies on the change list of the snapshot, so it has to be
+ * updated after every update of the same snapshot.
+ */
+public class FrontierIndex {
+    private int cellCount = -1;
+
+    // Position of each cell in borderCells, or -1 if it is not a border cell
+    private int[] borderPositions = new int[0];
+    private int[] borderCells = new int[0];
+    private int borderCount;
+
+    private int[] touchedCells = new int[0];
+    private int touchedCount;
+    // Update in which a cell was last touched, to visit every cell at most once per update
+    private int[] touchedStamps = new int[0];
+    private int stamp;
+
+    public void update(BoardSnapshot board) {
+        if (board.getCellCount() != cellCount) {
+            reset(board.getCellCount());
+        }
+
+        stamp++;
+        touchedCount = 0;
+        for (int i = 0; i < board.getChangedCount(); i++) {
+            int cell = board.getChangedCell(i);
+            touch(cell);
+            for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+                touch(board.getNeighbor(cell, d));
+            }
+        }
+
+        for (int i = 0; i < touchedCount; i++) {
+            int cell = touchedCells[i];
+            boolean border = board.belongsToMe(cell) && !BotUtils.isSurroundedByFriendlyCells(cell, board);
+            if (border && borderPositions[cell] < 0) {
+                borderPositions[cell] = borderCount;
+                borderCells[borderCount++] = cell;
+            } else if (!border && borderPositions[cell] >= 0) {
+                remove(cell);
+            }
+        }
+    }
+
+    private void reset(int newCellCount) {
+        cellCount = newCellCount;
+        borderPositions = new int[cellCount];
+        Arrays.fill(borderPositions, -1);
+        borderCells = new int[cellCount];
+        borderCount = 0;
+        touchedCells = new int[cellCount];
+        touchedStamps = new int[cellCount];
+        touchedCount = 0;
+        stamp = 0;
+    }
+
+    private void touch(int cell) {
+        if (touchedStamps[cell] != stamp) {
+            touchedStamps[cell] = stamp;
+            touchedCells[touchedCount++] = cell;
+        }
+    }
+
+    // Swap the last border cell into the gap so removal stays O(1)
+    private void remove(int cell) {
+        int position = borderPositions[cell];
+        int last = borderCells[--borderCount];
+        borderCells[position] = last;
+        borderPositions[last] = position;
+        borderPositions[cell] = -1;
+    }
+
+    public boolean isBorder(int cell) {
+        return borderPositions[cell] >= 0;
+    }
+
+    public int getBorderCount() {
+        return borderCount;
+    }
+
+    public int getBorderCell(int i) {
+        return borderCells[i];
+    }
+
+    // Number of cells revisited by the last update: the changed cells and their neighbours
+    public int getTouchedCount() {
+        return touchedCount;
+    }
+
+    public int getTouchedCell(int i) {
+        return touchedCells[i];
+    }
+}
@@ -0,0 +1,173 @@
+package gridwars.utils;
+
+import cern.ais.gridwars.api.Coordinates;
+import cern.ais.gridwars.api.UniverseView;
+import cern.ais.gridwars.api.command.MovementCommand;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Toroidal geometry of a universe: cell indices, neighbour tables and Manhattan rings, as flat {@code int} arrays.
+ *
+ * Cells are addressed by their index {@code y * universeSize + x}. The offset of each direction is taken from the
+ * API once, so the tables follow its orientation conventions. Geometries are immutable and cached per universe size
+ * in an array indexed by the size, so all bots and helpers of a process share the same tables and build them only
+ * once, and a lookup from any view and thread is a single array load. Ring tables are built on first use.
+ */
+public final class Geometry {
+    private static final int DIRECTION_COUNT = MovementCommand.Direction.values().length;
+    // Geometry of each universe size built so far, replaced by a larger copy when a new size is added
+    private static volatile Geometry[] bySize = new Geometry[0];
+
+    private final int universeSize;
+    private final int cellCount;
+    private final int[] dx;
+    private final int[] dy;
+    // Neighbour index of each cell, laid out as [cell * DIRECTION_COUNT + direction.ordinal()]
+    final int[] neighbors;
+    // Index of the direction pointing back, by direction index
+    private final int[] opposites = new int[DIRECTION_COUNT];
+    // Offsets at each Manhattan distance, as pairs of dx and dy
+    private final AtomicReferenceArray<int[]> rings;
+
+    private Geometry(int universeSize, int[] dx, int[] dy) {
+        this.universeSize = universeSize;
+        this.cellCount = universeSize * universeSize;
+        this.dx = dx;
+        this.dy = dy;
+        this.rings = new AtomicReferenceArray<>(universeSize + 1);
+
+        for (int d = 0; d < DIRECTION_COUNT; d++) {
+            for (int o = 0; o < DIRECTION_COUNT; o++) {
+                if (dx[o] == -dx[d] && dy[o] == -dy[d]) {
+                    opposites[d] = o;
+                }
+            }
+        }
+
+        neighbors = new int[cellCount * DIRECTION_COUNT];
+        for (int cell = 0; cell < cellCount; cell++) {
+            for (int d = 0; d < DIRECTION_COUNT; d++) {
+                neighbors[cell * DIRECTION_COUNT + d] = offset(cell, dx[d], dy[d]);
+            }
+        }
+    }
+
+    // Geometry of the universe of the view, built on the first request for its size
+    public static Geometry forUniverse(UniverseView universeView) {
+        int size = universeView.getUniverseSize();
+        Geometry[] geometries = bySize;
+        if (size < geometries.length && geometries[size] != null) {
+            return geometries[size];
+        }
+        return build(universeView, size);
+    }
+
+    // The orientation of the directions is a convention of the API, the same for every view of a process
+    private static synchronized Geometry build(UniverseView universeView, int size) {
+        Geometry[] geometries = bySize;
+        if (size < geometries.length && geometries[size] != null) {
+            return geometries[size];
+        }
+
+        int[] dx = new int[DIRECTION_COUNT];
+        int[] dy = new int[DIRECTION_COUNT];
+        Coordinates origin = universeView.getCoordinates(0, 0);
+        for (MovementCommand.Direction direction : MovementCommand.Direction.values()) {
+            Coordinates neighbor = origin.getNeighbour(direction);
+            int d = direction.ordinal();
+            dx[d] = neighbor.getX() > size / 2 ? neighbor.getX() - size : neighbor.getX();
+            dy[d] = neighbor.getY() > size / 2 ? neighbor.getY() - size : neighbor.getY();
+        }
+        Geometry geometry = new Geometry(size, dx, dy);
+        geometries = Arrays.copyOf(geometries, Math.max(geometries.length, size + 1));
+        geometries[size] = geometry;
+        bySize = geometries;
+        return geometry;
+    }
+
+    public int getUniverseSize() {
+        return universeSize;
+    }
+
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    // Index of the cell, wrapping coordinates outside the universe around the torus
+    public int indexOf(int x, int y) {
+        return Math.floorMod(y, universeSize) * universeSize + Math.floorMod(x, universeSize);
+    }
+
+    public int getX(int cell) {
+        return cell % universeSize;
+    }
+
+    public int getY(int cell) {
+        return cell / universeSize;
+    }
+
+    public int getNeighbor(int cell, int directionIndex) {
+        return neighbors[cell * DIRECTION_COUNT + directionIndex];
+    }
+
+    public int getOpposite(int directionIndex) {
+        return opposites[directionIndex];
+    }
+
+    // Offset of one step in the direction with the given index
+    public int getDx(int directionIndex) {
+        return dx[directionIndex];
+    }
+
+    public int getDy(int directionIndex) {
+        return dy[directionIndex];
+    }
+
+    public int offset(int cell, int offsetX, int offsetY) {
+        return indexOf(cell % universeSize + offsetX, cell / universeSize + offsetY);
+    }
+
+    /**
+     * Offsets of all cells at exactly the given Manhattan distance, as {@code dx, dy} pairs: one pair for radius 0 and
+     * {@code 4 * radius} pairs otherwise. Apply them with {@link #getRingCell}. Once the radius reaches half the
+     * universe size the ring wraps around the torus, and some cells appear more than once.
+     */
+    public int[] getRing(int radius) {
+        if (radius < 0 || radius > universeSize) {
+            throw new IllegalArgumentException("Ring radius must be between 0 and " + universeSize);
+        }
+        int[] ring = rings.get(radius);
+        if (ring == null) {
+            ring = buildRing(radius);
+            rings.compareAndSet(radius, null, ring);
+        }
+        return ring;
+    }
+
+    private static int[] buildRing(int radius) {
+        if (radius == 0) {
+            return new int[]{0, 0};
+        }
+        int[] ring = new int[8 * radius];
+        int i = 0;
+        for (int k = 0; k < radius; k++) {
+            // One side of the diamond per quadrant, each starting at a corner
+            ring[i++] = radius - k;
+            ring[i++] = k;
+            ring[i++] = -k;
+            ring[i++] = radius - k;
+            ring[i++] = -radius + k;
+            ring[i++] = -k;
+            ring[i++] = k;
+            ring[i++] = -radius + k;
+        }
+        return ring;
+    }
+
+    // The i-th cell of a ring from getRing(), around the given cell
+    public int getRingCell(int cell, int[] ring, int i) {
+        return offset(cell, ring[2 * i], ring[2 * i + 1]);
+    }
+}
@@ -0,0 +1,9 @@
+package gridwars.utils;
+
+/**
+ * Bot that can record {@link TurnMetrics} for each of its turns. Local tooling enables the recording before a match
+ * when asked to and dumps the metrics after it.
+ */
+public interface Instrumented {
+    TurnMetrics getTurnMetrics();
+}
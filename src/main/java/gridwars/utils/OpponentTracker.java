@@ -0,0 +1,191 @@
+package gridwars.utils;
+
+import cern.ais.gridwars.api.command.MovementCommand;
+
+import java.util.List;
+
+/**
+ * Memory of how the enemy moved in the previous turns, used to predict where it pushes troops next.
+ *
+ * Two things are learned, both only for enemy cells:
+ * <ul>
+ *     <li>The direction it expands into. Whenever the enemy takes a cell, the enemy cells next to it are credited
+ *     with a move in that direction. The credits fade by a constant factor per turn, so the model follows changes
+ *     of the enemy's strategy.</li>
+ *     <li>The fraction of its population it moves out per turn. For enemy cells next to the bot's border, the
+ *     population is compared with what growth alone would have made of it since the previous turn; the shortfall is
+ *     taken as outflow and averaged over the turns. Troops the bot sent into the cell itself, as passed to
+ *     {@link #recordCommands}, are taken off before growth, so the casualties of the bot's own attacks do not count
+ *     as enemy moves. A cell the bot took or emptied in between starts over.</li>
+ * </ul>
+ * The predicted pressure on a cell of the bot is then the expected number of enemy troops arriving from its enemy
+ * neighbours in the next turn.
+ *
+ * An update only visits the cells whose owner changed and the enemy neighbours of the border, so its cost follows
+ * the length of the front rather than the size of the universe. Queries are read-only and may run in parallel.
+ */
+public class OpponentTracker {
+    private static final int DIRECTION_COUNT = BoardSnapshot.DIRECTION_COUNT;
+    // Credits older than this many turns are treated as faded out
+    private static final int HISTORY = 64;
+    // Credit every direction starts with, so a cell without captures spreads its troops evenly
+    private static final float DIRECTION_PRIOR = 0.5f;
+    // Outflow rate assumed for enemy cells that were not observed in the previous turn
+    private static final float DEFAULT_OUTFLOW_RATE = 0.5f;
+
+    private final float[] decayPowers = new float[HISTORY];
+    private final float outflowSmoothing;
+
+    private BoardSnapshot board;
+    private int cellCount = -1;
+    private int update;
+
+    private byte[] lastOwners = new byte[0];
+    private int[] lastPopulations = new int[0];
+    // Update in which the population of an enemy cell was last observed, 0 if never
+    private int[] lastSeen = new int[0];
+    private float[] outflowRates = new float[0];
+    // Troops the bot sent into an enemy cell, in the update stored in attackStamps
+    private int[] attacks = new int[0];
+    private int[] attackStamps = new int[0];
+    // Faded capture credits, laid out as [cell * DIRECTION_COUNT + direction], as of the update in directionStamps
+    private float[] directionCredits = new float[0];
+    private int[] directionStamps = new int[0];
+
+    // Credits keep the given fraction per turn, outflow rates move by the given fraction towards each observation
+    public OpponentTracker(double directionDecay, double outflowSmoothing) {
+        this.outflowSmoothing = (float) outflowSmoothing;
+        for (int i = 0; i < HISTORY; i++) {
+            decayPowers[i] = (float) Math.pow(directionDecay, i);
+        }
+    }
+
+    public OpponentTracker() {
+        this(0.8, 0.3);
+    }
+
+    // Call once per turn after the snapshot and the frontier were updated
+    public void update(BoardSnapshot board, FrontierIndex frontier, double growthRate, int maximumPopulation) {
+        this.board = board;
+        if (board.getCellCount() != cellCount) {
+            reset(board.getCellCount());
+        }
+        update++;
+
+        // Captures are judged against the owners of the previous turn, so those are only updated afterwards
+        for (int i = 0; i < board.getChangedCount(); i++) {
+            int cell = board.getChangedCell(i);
+            if (board.isEnemy(cell)) {
+                for (int d = 0; d < DIRECTION_COUNT; d++) {
+                    int source = board.getNeighbor(cell, d);
+                    if (lastOwners[source] == BoardSnapshot.ENEMY) {
+                        credit(source, board.getOpposite(d));
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < board.getChangedCount(); i++) {
+            int cell = board.getChangedCell(i);
+            lastOwners[cell] = board.getOwner(cell);
+        }
+
+        for (int i = 0; i < frontier.getBorderCount(); i++) {
+            int border = frontier.getBorderCell(i);
+            for (int d = 0; d < DIRECTION_COUNT; d++) {
+                int enemy = board.getNeighbor(border, d);
+                if (board.isEnemy(enemy) && lastSeen[enemy] != update) {
+                    observe(enemy, growthRate, maximumPopulation);
+                }
+            }
+        }
+    }
+
+    private void reset(int newCellCount) {
+        cellCount = newCellCount;
+        update = 0;
+        lastOwners = new byte[cellCount];
+        lastPopulations = new int[cellCount];
+        lastSeen = new int[cellCount];
+        outflowRates = new float[cellCount];
+        attacks = new int[cellCount];
+        attackStamps = new int[cellCount];
+        directionCredits = new float[cellCount * DIRECTION_COUNT];
+        directionStamps = new int[cellCount];
+    }
+
+    // Call at the end of the turn with the final commands of the bot, so its attacks are told apart from enemy moves
+    public void recordCommands(List<MovementCommand> commandList) {
+        for (int i = 0; i < commandList.size(); i++) {
+            MovementCommand command = commandList.get(i);
+            int target = board.getNeighbor(board.indexOf(command.getCoordinatesFrom()), command.getDirection());
+            if (!board.isEnemy(target)) {
+                continue;
+            }
+            if (attackStamps[target] != update) {
+                attackStamps[target] = update;
+                attacks[target] = 0;
+            }
+            attacks[target] += command.getAmount();
+        }
+    }
+
+    private void credit(int cell, int direction) {
+        float decay = decay(update - directionStamps[cell]);
+        for (int d = 0; d < DIRECTION_COUNT; d++) {
+            directionCredits[cell * DIRECTION_COUNT + d] *= decay;
+        }
+        directionStamps[cell] = update;
+        directionCredits[cell * DIRECTION_COUNT + direction] += 1;
+    }
+
+    private void observe(int cell, double growthRate, int maximumPopulation) {
+        int population = board.getPopulation(cell);
+        int attacked = attackStamps[cell] == update - 1 ? attacks[cell] : 0;
+        if (lastSeen[cell] == update - 1 && lastSeen[cell] > 0 && attacked < lastPopulations[cell]) {
+            long expected = Math.min(maximumPopulation, Math.round((lastPopulations[cell] - attacked) * growthRate));
+            float outflow = expected <= 0 ? 0 : Math.max(0, Math.min(1, (float) (expected - population) / expected));
+            outflowRates[cell] += outflowSmoothing * (outflow - outflowRates[cell]);
+        } else {
+            outflowRates[cell] = DEFAULT_OUTFLOW_RATE;
+        }
+        lastPopulations[cell] = population;
+        lastSeen[cell] = update;
+    }
+
+    private float decay(int turns) {
+        return turns < HISTORY ? decayPowers[turns] : 0;
+    }
+
+    // Share of the outflow of the enemy cell expected in the given direction
+    public double getDirectionShare(int enemyCell, int direction) {
+        float decay = decay(update - directionStamps[enemyCell]);
+        float total = 0;
+        for (int d = 0; d < DIRECTION_COUNT; d++) {
+            total += directionCredits[enemyCell * DIRECTION_COUNT + d];
+        }
+        return (directionCredits[enemyCell * DIRECTION_COUNT + direction] * decay + DIRECTION_PRIOR)
+                / (total * decay + DIRECTION_COUNT * DIRECTION_PRIOR);
+    }
+
+    // Fraction of its population the enemy cell is expected to move out in the next turn
+    public double getOutflowRate(int enemyCell) {
+        return lastSeen[enemyCell] == update ? outflowRates[enemyCell] : DEFAULT_OUTFLOW_RATE;
+    }
+
+    // Expected number of enemy troops moving into the cell in the next turn
+    public double getPredictedPressure(int cell) {
+        double pressure = 0;
+        for (int d = 0; d < DIRECTION_COUNT; d++) {
+            int enemy = board.getNeighbor(cell, d);
+            if (board.isEnemy(enemy)) {
+                pressure += board.getPopulation(enemy) * getOutflowRate(enemy) * getDirectionShare(enemy, board.getOpposite(d));
+            }
+        }
+        return pressure;
+    }
+
+    // Whether the predicted pressure on a cell of the bot exceeds the population it will hold
+    public boolean isThreatened(int cell, int remainingPopulation) {
+        return getPredictedPressure(cell) >= remainingPopulation;
+    }
+}
@@ -0,0 +1,69 @@
+package gridwars.utils;
+
+import java.util.Locale;
+
+/**
+ * Tunable constant of a bot: its name and the range a tuner may pick values from.
+ *
+ * Tuners search in the unit interval and map points to the range with {@link #fromUnit(double)}, so parameters of
+ * very different scales get comparable step sizes. Integer parameters are rounded to the nearest integer.
+ */
+public final class Parameter {
+    private final String name;
+    private final double min;
+    private final double max;
+    private final boolean integer;
+
+    private Parameter(String name, double min, double max, boolean integer) {
+        if (min > max) {
+            throw new IllegalArgumentException("Empty range for parameter " + name);
+        }
+        this.name = name;
+        this.min = min;
+        this.max = max;
+        this.integer = integer;
+    }
+
+    public static Parameter integer(String name, int min, int max) {
+        return new Parameter(name, min, max, true);
+    }
+
+    public static Parameter real(String name, double min, double max) {
+        return new Parameter(name, min, max, false);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public boolean isInteger() {
+        return integer;
+    }
+
+    // Value of the point of the unit interval, clamped to the range
+    public double fromUnit(double unit) {
+        double value = min + Math.max(0, Math.min(1, unit)) * (max - min);
+        return integer ? Math.round(value) : value;
+    }
+
+    public double toUnit(double value) {
+        return max == min ? 0 : Math.max(0, Math.min(1, (value - min) / (max - min)));
+    }
+
+    public String format(double value) {
+        return integer ? Long.toString(Math.round(value)) : String.format(Locale.ROOT, "%.4f", value);
+    }
+
+    @Override
+    public String toString() {
+        return name + " [" + format(min) + ", " + format(max) + "]";
+    }
+}
@@ -0,0 +1,11 @@
+package gridwars.utils;
+
+/**
+ * Bot whose random decisions can be seeded, so a match played with the same seed makes the same decisions.
+ *
+ * Local tooling seeds every bot from the match seed before the first turn; the game server never calls it, so a bot
+ * keeps its own seed there.
+ */
+public interface Seedable {
+    void setRandomSeed(long seed);
+}
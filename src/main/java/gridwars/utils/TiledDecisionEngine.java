@@ -0,0 +1,169 @@
+package gridwars.utils;
+
+import cern.ais.gridwars.api.command.MovementCommand;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Evaluates per-cell decisions for the border cells of the bot in parallel, split into square tiles.
+ *
+ * The border cells of the {@link FrontierIndex} are first sorted into buckets per tile, in the order of the index,
+ * so a run costs as much as the border and not as the whole universe. Each tile is evaluated by one fork/join task
+ * that reads the {@link BoardSnapshot} and the index of the turn, which must not be modified while the engine runs,
+ * and writes into a command buffer of its own. The buffers are then appended to the command list in tile order, so
+ * the list may hold the commands in another order than a sequential run. Every cell gets a random generator seeded
+ * with {@link #cellSeed} from the turn seed and the cell index only, so for a given seed every cell makes the same
+ * decision as in a sequential run over the same per-cell seeds, whatever the number of threads.
+ *
+ * That only holds while the deadline is not reached: tiles that start after it add no commands, and which tiles
+ * those are depends on timing and on how the pool schedules the tasks.
+ *
+ * Decisions for different cells run concurrently, so they may only write per-cell state of their own cell.
+ */
+public class TiledDecisionEngine {
+
+    /**
+     * Decision for one cell of the bot, adding its commands to the given tile buffer.
+     */
+    public interface CellDecision {
+        void decide(int cell, Random random, List<MovementCommand> commandList);
+    }
+
+    private final ForkJoinPool pool;
+    private final int tileSize;
+
+    private int universeSize = -1;
+    private int tilesPerRow;
+    private final List<List<MovementCommand>> tileBuffers = new ArrayList<>();
+    private Random[] tileRandoms;
+    // Border cells of each tile, laid out as tile after tile with tileStarts[tile] the first of each tile
+    private int[] tileCells = new int[0];
+    private int[] tileStarts = new int[0];
+    private int[] tileCounts = new int[0];
+
+    // Run tiles on the given pool; a null pool evaluates all tiles sequentially on the calling thread
+    public TiledDecisionEngine(ForkJoinPool pool, int tileSize) {
+        this.pool = pool;
+        this.tileSize = tileSize;
+    }
+
+    public TiledDecisionEngine(int tileSize) {
+        this(ForkJoinPool.commonPool(), tileSize);
+    }
+
+    private void resize(int size) {
+        universeSize = size;
+        tilesPerRow = (size + tileSize - 1) / tileSize;
+        int tileCount = tilesPerRow * tilesPerRow;
+        tileBuffers.clear();
+        tileRandoms = new Random[tileCount];
+        tileCells = new int[size * size];
+        tileStarts = new int[tileCount];
+        tileCounts = new int[tileCount];
+        for (int tile = 0; tile < tileCount; tile++) {
+            tileBuffers.add(new ArrayList<>());
+            tileRandoms[tile] = new Random();
+        }
+    }
+
+    public void run(BoardSnapshot board, FrontierIndex frontier, long seed, CellDecision decision, TurnDeadline deadline,
+                    List<MovementCommand> commandList) {
+        if (board.getUniverseSize() != universeSize) {
+            resize(board.getUniverseSize());
+        }
+        bucketBorderCells(board, frontier);
+
+        if (pool == null) {
+            for (int tile = 0; tile < tileBuffers.size(); tile++) {
+                decideTile(tile, seed, decision, deadline);
+            }
+        } else {
+            pool.invoke(new TileRange(0, tileBuffers.size(), seed, decision, deadline));
+        }
+
+        for (List<MovementCommand> buffer : tileBuffers) {
+            commandList.addAll(buffer);
+        }
+    }
+
+    // Counting sort of the border cells by tile, keeping the order of the frontier index within a tile
+    private void bucketBorderCells(BoardSnapshot board, FrontierIndex frontier) {
+        Arrays.fill(tileCounts, 0);
+        for (int i = 0; i < frontier.getBorderCount(); i++) {
+            tileCounts[tileOf(board, frontier.getBorderCell(i))]++;
+        }
+        int start = 0;
+        for (int tile = 0; tile < tileCounts.length; tile++) {
+            tileStarts[tile] = start;
+            start += tileCounts[tile];
+            tileCounts[tile] = 0;
+        }
+        for (int i = 0; i < frontier.getBorderCount(); i++) {
+            int cell = frontier.getBorderCell(i);
+            int tile = tileOf(board, cell);
+            tileCells[tileStarts[tile] + tileCounts[tile]++] = cell;
+        }
+    }
+
+    private int tileOf(BoardSnapshot board, int cell) {
+        return (board.getY(cell) / tileSize) * tilesPerRow + board.getX(cell) / tileSize;
+    }
+
+    private void decideTile(int tile, long seed, CellDecision decision, TurnDeadline deadline) {
+        List<MovementCommand> buffer = tileBuffers.get(tile);
+        buffer.clear();
+        if (deadline.isExpired()) {
+            return;
+        }
+
+        Random random = tileRandoms[tile];
+        int end = tileStarts[tile] + tileCounts[tile];
+        for (int i = tileStarts[tile]; i < end; i++) {
+            int cell = tileCells[i];
+            random.setSeed(cellSeed(seed, cell));
+            decision.decide(cell, random, buffer);
+        }
+    }
+
+    // Seed of the random generator of a cell in a turn; a SplitMix64 step, so neighbouring cells get unrelated sequences
+    public static long cellSeed(long seed, int cell) {
+        long z = seed + (cell + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private class TileRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final long seed;
+        private final CellDecision decision;
+        private final TurnDeadline deadline;
+
+        TileRange(int from, int to, long seed, CellDecision decision, TurnDeadline deadline) {
+            this.from = from;
+            this.to = to;
+            this.seed = seed;
+            this.decision = decision;
+            this.deadline = deadline;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                decideTile(from, seed, decision, deadline);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new TileRange(from, middle, seed, decision, deadline),
+                    new TileRange(middle, to, seed, decision, deadline));
+        }
+    }
+}
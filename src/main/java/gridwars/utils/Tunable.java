@@ -0,0 +1,16 @@
+package gridwars.utils;
+
+import java.util.List;
+
+/**
+ * Bot whose strategy constants can be read and replaced as one parameter vector, so a tuner can search them.
+ *
+ * The values are given in the order of {@link #getParameters()}, each within the range of its parameter.
+ */
+public interface Tunable {
+    List<Parameter> getParameters();
+
+    double[] getParameterValues();
+
+    void setParameterValues(double[] values);
+}
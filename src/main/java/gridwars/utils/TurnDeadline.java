@@ -0,0 +1,23 @@
+package gridwars.utils;
+
+/**
+ * Point in time by which a bot has to hand back its commands, measured with {@link System#nanoTime()}.
+ *
+ * Passes that loop over many cells should poll {@link #isExpired()} every few cells and stop early, keeping the
+ * commands they already added.
+ */
+public class TurnDeadline {
+    private long deadlineNanos = Long.MAX_VALUE;
+
+    void start(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    public boolean isExpired() {
+        return System.nanoTime() >= deadlineNanos;
+    }
+
+    public long getRemainingNanos() {
+        return deadlineNanos - System.nanoTime();
+    }
+}
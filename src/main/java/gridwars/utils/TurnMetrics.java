@@ -0,0 +1,205 @@
+package gridwars.utils;
+
+import cern.ais.gridwars.api.command.MovementCommand;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+
+/**
+ * Per-turn measurements of a bot: wall time per phase, cells processed, commands emitted, population moved and the
+ * bytes allocated by the bot thread.
+ *
+ * Recording is off until {@link #setEnabled} turns it on, which local tooling does on request, so a bot that carries
+ * an instance pays a field check per call and nothing else on the game server. Once enabled, all values go into
+ * preallocated ring buffers holding the most recent turns, so recording never allocates and needs no locking; an
+ * instance is meant to be used by the one thread that runs the bot. The recorded turns can be written out as CSV
+ * once the match is over.
+ *
+ * A turn is recorded as:
+ * <pre>
+ * metrics.startTurn(turn);
+ * ... phase 0 ...
+ * metrics.endPhase(0);
+ * ... phase 1 ...
+ * metrics.endPhase(1);
+ * metrics.endTurn(commandList);
+ * </pre>
+ * where every phase is measured from the end of the previous one. Counters named with {@link #withCounters} add
+ * bot-specific per-turn totals, such as cache hits, as extra columns.
+ */
+public class TurnMetrics {
+    private final String[] phaseNames;
+    private final int capacity;
+
+    private boolean enabled;
+    private int[] turns;
+    private long[] totalNanos;
+    private long[] phaseNanos;
+    private int[] cellsProcessed;
+    private int[] commands;
+    private long[] populationMoved;
+    private long[] allocatedBytes;
+    private String[] counterNames = new String[0];
+    private long[] counters = new long[0];
+    private int recordedTurns;
+
+    private ThreadMXBean threadBean;
+    private long turnStart;
+    private long phaseStart;
+    private long allocatedAtStart;
+    private int row;
+
+    public TurnMetrics(int capacity, String... phaseNames) {
+        this.capacity = capacity;
+        this.phaseNames = phaseNames;
+    }
+
+    // Name the extra per-turn counters, indexed like the names; call before the first turn
+    public TurnMetrics withCounters(String... counterNames) {
+        this.counterNames = counterNames;
+        return this;
+    }
+
+    // Start recording, allocating the buffers on first use; call before the first turn
+    public TurnMetrics setEnabled(boolean enabled) {
+        if (enabled && turns == null) {
+            turns = new int[capacity];
+            totalNanos = new long[capacity];
+            phaseNanos = new long[capacity * phaseNames.length];
+            cellsProcessed = new int[capacity];
+            commands = new int[capacity];
+            populationMoved = new long[capacity];
+            allocatedBytes = new long[capacity];
+            counters = new long[capacity * counterNames.length];
+            threadBean = allocationBean();
+        }
+        this.enabled = enabled;
+        return this;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Thread allocation counters are a HotSpot extension and may be unavailable or forbidden
+    private static ThreadMXBean allocationBean() {
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) bean;
+                if (allocationBean.isThreadAllocatedMemorySupported() && allocationBean.isThreadAllocatedMemoryEnabled()) {
+                    return bean;
+                }
+            }
+        } catch (RuntimeException | LinkageError e) {
+            // Fall through, allocation is then reported as -1
+        }
+        return null;
+    }
+
+    private long allocatedBytes() {
+        if (threadBean == null) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    public void startTurn(int turn) {
+        if (!enabled) {
+            return;
+        }
+        row = recordedTurns % capacity;
+        turns[row] = turn;
+        cellsProcessed[row] = 0;
+        for (int phase = 0; phase < phaseNames.length; phase++) {
+            phaseNanos[row * phaseNames.length + phase] = 0;
+        }
+        for (int counter = 0; counter < counterNames.length; counter++) {
+            counters[row * counterNames.length + counter] = 0;
+        }
+        allocatedAtStart = allocatedBytes();
+        turnStart = System.nanoTime();
+        phaseStart = turnStart;
+    }
+
+    // Attribute the time since the previous phase ended (or the turn started) to the given phase
+    public void endPhase(int phase) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        phaseNanos[row * phaseNames.length + phase] += now - phaseStart;
+        phaseStart = now;
+    }
+
+    public void addCellsProcessed(int count) {
+        if (!enabled) {
+            return;
+        }
+        cellsProcessed[row] += count;
+    }
+
+    public void addCounter(int counter, long amount) {
+        if (!enabled) {
+            return;
+        }
+        counters[row * counterNames.length + counter] += amount;
+    }
+
+    public void endTurn(List<MovementCommand> commandList) {
+        if (!enabled) {
+            return;
+        }
+        totalNanos[row] = System.nanoTime() - turnStart;
+
+        long moved = 0;
+        for (int i = 0; i < commandList.size(); i++) {
+            moved += commandList.get(i).getAmount();
+        }
+        commands[row] = commandList.size();
+        populationMoved[row] = moved;
+        allocatedBytes[row] = allocatedAtStart < 0 ? -1 : allocatedBytes() - allocatedAtStart;
+        recordedTurns++;
+    }
+
+    // Number of turns recorded so far, including the ones that were overwritten in the ring buffer
+    public int getRecordedTurns() {
+        return recordedTurns;
+    }
+
+    public String[] getPhaseNames() {
+        return phaseNames.clone();
+    }
+
+    // Write the turns still held in the ring buffer, oldest first, with times in microseconds
+    public void writeCsv(Appendable out) throws IOException {
+        out.append("turn,total_us");
+        for (String phaseName : phaseNames) {
+            out.append(',').append(phaseName.replace(' ', '_')).append("_us");
+        }
+        out.append(",cells,commands,population_moved,allocated_bytes");
+        for (String counterName : counterNames) {
+            out.append(',').append(counterName.replace(' ', '_'));
+        }
+        out.append('\n');
+
+        int first = Math.max(0, recordedTurns - capacity);
+        for (int i = first; i < recordedTurns; i++) {
+            int r = i % capacity;
+            out.append(Integer.toString(turns[r])).append(',').append(Long.toString(totalNanos[r] / 1000));
+            for (int phase = 0; phase < phaseNames.length; phase++) {
+                out.append(',').append(Long.toString(phaseNanos[r * phaseNames.length + phase] / 1000));
+            }
+            out.append(',').append(Integer.toString(cellsProcessed[r]))
+                    .append(',').append(Integer.toString(commands[r]))
+                    .append(',').append(Long.toString(populationMoved[r]))
+                    .append(',').append(Long.toString(allocatedBytes[r]));
+            for (int counter = 0; counter < counterNames.length; counter++) {
+                out.append(',').append(Long.toString(counters[r * counterNames.length + counter]));
+            }
+            out.append('\n');
+        }
+    }
+}
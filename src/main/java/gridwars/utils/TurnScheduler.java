@@ -0,0 +1,185 @@
+package gridwars.utils;
+
+import cern.ais.gridwars.api.UniverseView;
+import cern.ais.gridwars.api.command.MovementCommand;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the decision passes of a bot within the turn timeout.
+ *
+ * A strategy registers one cheap mandatory pass, which always runs and must leave a valid command list on its own,
+ * plus optional refinement passes with a priority. After the mandatory pass the refinements are tried from the
+ * highest priority down. A refinement runs if the time left before the deadline covers its estimated duration, a
+ * moving average of the times it took when it ran; one that does not fit is skipped and cheaper ones further down
+ * still get their chance. A refinement that was skipped {@value #RETRY_INTERVAL} turns in a row runs anyway as long as
+ * any time is left and its estimate starts over from that run, so a single slow run, e.g. during a garbage collection
+ * or a cold first turn, cannot shut it out for the rest of the match. Every pass gets the {@link TurnDeadline} to stop early inside its own loops.
+ *
+ * The deadline counts from the start of the bot's turn, so the work a bot does before running the passes, such as
+ * updating its snapshot, is part of the budget. It leaves a safety margin and the time the post-processing of the
+ * commands took the last turn, measured from the end of {@link #run} to {@link #endPostProcessing}:
+ * <pre>
+ * long turnStart = System.nanoTime();
+ * ... update the board ...
+ * scheduler.run(universeView, commandList, turnStart);
+ * ... post-process the commands ...
+ * scheduler.endPostProcessing();
+ * </pre>
+ *
+ * The number of refinements that completed is recorded for the most recent turns in a ring buffer. With
+ * {@link #setMetrics} the wall time of every pass is also recorded into consecutive phases of a
+ * {@link TurnMetrics}: first the mandatory pass, then the refinements in the order they run.
+ */
+public class TurnScheduler {
+    // Turns of which the number of completed refinements is kept
+    public static final int HISTORY_SIZE = 1024;
+    // Turns a refinement can be skipped in a row before it runs again to refresh its estimate
+    public static final int RETRY_INTERVAL = 16;
+
+    /**
+     * One decision pass over the board. A pass may only add commands that keep the whole list valid.
+     */
+    public interface Pass {
+        void run(UniverseView universeView, List<MovementCommand> commandList, TurnDeadline deadline);
+    }
+
+    private static class Refinement {
+        final String name;
+        final int priority;
+        final Pass pass;
+        // Moving average of the durations, 0 until the first run
+        long estimatedNanos;
+        int skippedTurns;
+        int runs;
+
+        Refinement(String name, int priority, Pass pass) {
+            this.name = name;
+            this.priority = priority;
+            this.pass = pass;
+        }
+    }
+
+    private final Pass mandatoryPass;
+    private final long safetyMarginNanos;
+    private final List<Refinement> refinements = new ArrayList<>();
+    private final TurnDeadline deadline = new TurnDeadline();
+
+    private final int[] completedPerTurn = new int[HISTORY_SIZE];
+    private int turnCount;
+    private long runEndNanos;
+    private long postProcessingNanos;
+
+    private TurnMetrics metrics;
+    private int firstPhase;
+
+    public TurnScheduler(Pass mandatoryPass, int safetyMarginMillis) {
+        this.mandatoryPass = mandatoryPass;
+        this.safetyMarginNanos = safetyMarginMillis * 1_000_000L;
+    }
+
+    // Record the time of each pass into the phases of the metrics starting at firstPhase
+    public TurnScheduler setMetrics(TurnMetrics metrics, int firstPhase) {
+        this.metrics = metrics;
+        this.firstPhase = firstPhase;
+        return this;
+    }
+
+    // Register an optional pass; passes with a higher priority run first
+    public TurnScheduler addRefinement(String name, int priority, Pass pass) {
+        Refinement refinement = new Refinement(name, priority, pass);
+        int position = 0;
+        while (position < refinements.size() && refinements.get(position).priority >= priority) {
+            position++;
+        }
+        refinements.add(position, refinement);
+        return this;
+    }
+
+    // Run the passes of a turn that started at the given System.nanoTime()
+    public void run(UniverseView universeView, List<MovementCommand> commandList, long turnStartNanos) {
+        deadline.start(turnStartNanos + universeView.getTurnTimeOutInMilliseconds() * 1_000_000L
+                - safetyMarginNanos - postProcessingNanos);
+
+        mandatoryPass.run(universeView, commandList, deadline);
+        if (metrics != null) {
+            metrics.endPhase(firstPhase);
+        }
+
+        int completed = 0;
+        for (int i = 0; i < refinements.size(); i++) {
+            Refinement refinement = refinements.get(i);
+            long remaining = deadline.getRemainingNanos();
+            boolean retry = refinement.skippedTurns >= RETRY_INTERVAL && remaining > 0;
+            if (remaining <= refinement.estimatedNanos && !retry) {
+                refinement.skippedTurns++;
+                continue;
+            }
+            long passStart = System.nanoTime();
+            refinement.pass.run(universeView, commandList, deadline);
+            long duration = System.nanoTime() - passStart;
+            refinement.estimatedNanos = refinement.runs == 0 || retry
+                    ? duration
+                    : refinement.estimatedNanos + (duration - refinement.estimatedNanos) / 4;
+            refinement.runs++;
+            refinement.skippedTurns = 0;
+            if (metrics != null) {
+                metrics.endPhase(firstPhase + 1 + i);
+            }
+            if (deadline.isExpired()) {
+                break;
+            }
+            completed++;
+        }
+
+        completedPerTurn[turnCount++ % HISTORY_SIZE] = completed;
+        runEndNanos = System.nanoTime();
+    }
+
+    // Mark the end of the post-processing after run, whose time is reserved before the deadline of the next turn
+    public void endPostProcessing() {
+        postProcessingNanos = System.nanoTime() - runEndNanos;
+    }
+
+    // Time the post-processing took the last turn
+    public long getPostProcessingNanos() {
+        return postProcessingNanos;
+    }
+
+    public int getRefinementCount() {
+        return refinements.size();
+    }
+
+    public String getRefinementName(int i) {
+        return refinements.get(i).name;
+    }
+
+    // Estimated duration of the i-th refinement in run order
+    public long getEstimatedNanos(int i) {
+        return refinements.get(i).estimatedNanos;
+    }
+
+    // Number of turns in which the i-th refinement ran, whether or not it completed
+    public int getRuns(int i) {
+        return refinements.get(i).runs;
+    }
+
+    // Number of turns run so far
+    public int getTurnCount() {
+        return turnCount;
+    }
+
+    // Refinements that completed before the deadline in the given turn, counted from 0; only the last
+    // HISTORY_SIZE turns are kept
+    public int getCompletedRefinements(int turn) {
+        if (turn < turnCount - HISTORY_SIZE || turn >= turnCount) {
+            throw new IllegalArgumentException("Turn " + turn + " is not in the history");
+        }
+        return completedPerTurn[turn % HISTORY_SIZE];
+    }
+
+    public int getLastCompletedRefinements() {
+        return turnCount == 0 ? 0 : completedPerTurn[(turnCount - 1) % HISTORY_SIZE];
+    }
+}
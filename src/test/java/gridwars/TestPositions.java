@@ -0,0 +1,46 @@
+package gridwars;
+
+import gridwars.harness.Position;
+import gridwars.harness.PositionView;
+import gridwars.utils.BoardSnapshot;
+
+import java.util.Random;
+
+/**
+ * Random board states for tests, with the settings of the competition.
+ */
+public final class TestPositions {
+
+    private TestPositions() {
+    }
+
+    // Each cell is owned by the bot or the enemy with the given probabilities, with a population of 1 to 100
+    public static Position random(Random random, int size, double myDensity, double enemyDensity) {
+        byte[] owners = new byte[size * size];
+        int[] populations = new int[size * size];
+        for (int cell = 0; cell < owners.length; cell++) {
+            double roll = random.nextDouble();
+            if (roll < myDensity) {
+                owners[cell] = BoardSnapshot.MINE;
+            } else if (roll < myDensity + enemyDensity) {
+                owners[cell] = BoardSnapshot.ENEMY;
+            } else {
+                continue;
+            }
+            populations[cell] = 1 + random.nextInt(100);
+        }
+        // A bot always owns at least one cell
+        owners[0] = BoardSnapshot.MINE;
+        populations[0] = Math.max(1, populations[0]);
+
+        Position position = new Position();
+        position.set("test", size, 100, 1.1, 100, owners, populations);
+        return position;
+    }
+
+    public static PositionView view(Position position) {
+        PositionView view = new PositionView(50, 4000);
+        view.load(position);
+        return view;
+    }
+}
@@ -0,0 +1,207 @@
+package gridwars.replay;
+
+import cern.ais.gridwars.api.UniverseView;
+import cern.ais.gridwars.api.bot.PlayerBot;
+import cern.ais.gridwars.api.command.MovementCommand;
+import gridwars.harness.Position;
+import gridwars.harness.PositionView;
+import gridwars.utils.BoardSnapshot;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * A replay read back gives the boards, commands, index and outcome that were recorded, also when the index and
+ * footer are missing or the last record is cut off.
+ */
+public class ReplayRoundTripTest {
+    private static final int SIZE = 40;
+    // Turn numbers, populations and amounts large enough for varints of several bytes
+    private static final int[] TURNS = {0, 1, 200, 70_000, 70_001};
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Position> positions = new ArrayList<>();
+    private final List<List<String>> commands = new ArrayList<>();
+
+    // Emits a few commands with large amounts, one of them without direction which the recorder leaves out
+    private class CommandingBot implements PlayerBot {
+        final Random random = new Random(3);
+
+        @Override
+        public void getNextCommands(UniverseView universeView, List<MovementCommand> commandList) {
+            List<String> recorded = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                int x = random.nextInt(SIZE);
+                int y = random.nextInt(SIZE);
+                int direction = random.nextInt(BoardSnapshot.DIRECTION_COUNT);
+                int amount = random.nextInt(1_000_000);
+                commandList.add(new MovementCommand(universeView.getCoordinates(x, y),
+                        BoardSnapshot.DIRECTIONS[direction], amount));
+                recorded.add((y * SIZE + x) + " " + direction + " " + amount);
+            }
+            commandList.add(new MovementCommand(universeView.getCoordinates(0, 0), null, 1));
+            commands.add(recorded);
+        }
+    }
+
+    private Path record(byte outcome) throws IOException {
+        Random random = new Random(1);
+        Path file = folder.newFile("match.gwr").toPath();
+        try (ReplayRecorder recorder = new ReplayRecorder(new CommandingBot(), file)) {
+            for (int turn : TURNS) {
+                byte[] owners = new byte[SIZE * SIZE];
+                int[] populations = new int[SIZE * SIZE];
+                // Sparse changes give cell gaps above 127, and populations rise and fall between turns
+                for (int cell = random.nextInt(300); cell < owners.length; cell += 1 + random.nextInt(300)) {
+                    owners[cell] = (byte) (1 + random.nextInt(2));
+                    populations[cell] = 1 + random.nextInt(2_000_000);
+                }
+                owners[0] = BoardSnapshot.MINE;
+                populations[0] = 1;
+                Position position = new Position();
+                position.set("turn " + turn, SIZE, turn, 1.1, 100, owners, populations);
+                positions.add(position);
+
+                PositionView view = new PositionView(50, 4000);
+                view.load(position);
+                recorder.getNextCommands(view, new ArrayList<>());
+            }
+            recorder.setOutcome(outcome);
+        }
+        return file;
+    }
+
+    private void assertTurns(ReplayReader reader, int turnCount) {
+        assertEquals("Bot name", CommandingBot.class.getName(), reader.getBotName());
+        assertEquals(SIZE, reader.getUniverseSize());
+        assertEquals(turnCount, reader.getTurnCount());
+
+        byte[] owners = new byte[SIZE * SIZE];
+        int[] populations = new int[SIZE * SIZE];
+        for (int i = 0; i < turnCount; i++) {
+            Position position = positions.get(i);
+            int myCells = 0;
+            int enemyCells = 0;
+            long myPopulation = 0;
+            long enemyPopulation = 0;
+            byte[] expectedOwners = new byte[SIZE * SIZE];
+            int[] expectedPopulations = new int[SIZE * SIZE];
+            for (int cell = 0; cell < owners.length; cell++) {
+                expectedOwners[cell] = position.getOwner(cell);
+                expectedPopulations[cell] = position.getPopulation(cell);
+                if (position.getOwner(cell) == BoardSnapshot.MINE) {
+                    myCells++;
+                    myPopulation += position.getPopulation(cell);
+                } else if (position.getOwner(cell) == BoardSnapshot.ENEMY) {
+                    enemyCells++;
+                    enemyPopulation += position.getPopulation(cell);
+                }
+            }
+            assertEquals(TURNS[i], reader.getTurn(i));
+            assertEquals(myCells, reader.getMyCells(i));
+            assertEquals(enemyCells, reader.getEnemyCells(i));
+            assertEquals(myPopulation, reader.getMyPopulation(i));
+            assertEquals(enemyPopulation, reader.getEnemyPopulation(i));
+
+            List<String> readCommands = new ArrayList<>();
+            reader.readTurn(i, new ReplayVisitor() {
+                @Override
+                public void cellChanged(int cell, byte owner, int populationDelta) {
+                    owners[cell] = owner;
+                    populations[cell] += populationDelta;
+                }
+
+                @Override
+                public void command(int cell, int directionIndex, int amount) {
+                    readCommands.add(cell + " " + directionIndex + " " + amount);
+                }
+            });
+            assertArrayEquals("owners in turn " + TURNS[i], expectedOwners, owners);
+            assertArrayEquals("populations in turn " + TURNS[i], expectedPopulations, populations);
+            assertEquals("commands in turn " + TURNS[i], commands.get(i), readCommands);
+        }
+    }
+
+    // Copy of the file without its last bytes
+    private Path truncated(Path file, long removedBytes) throws IOException {
+        Path copy = folder.newFile().toPath();
+        Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+        try (FileChannel channel = FileChannel.open(copy, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - removedBytes);
+        }
+        return copy;
+    }
+
+    @Test
+    public void varintsRoundTrip() {
+        long[] values = {0, 1, -1, 63, -64, 127, 128, 16_383, 16_384, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                Long.MAX_VALUE, Long.MIN_VALUE};
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 2 * Varints.MAX_LENGTH);
+        for (long value : values) {
+            Varints.putSigned(buffer, value);
+            Varints.putUnsigned(buffer, value);
+        }
+        buffer.flip();
+        for (long value : values) {
+            assertEquals(value, Varints.getSigned(buffer));
+            assertEquals(value, Varints.getUnsigned(buffer));
+        }
+        assertFalse(buffer.hasRemaining());
+    }
+
+    private static long indexAndFooterSize() {
+        return TURNS.length * ReplayRecorder.INDEX_ENTRY_SIZE + ReplayRecorder.FOOTER_SIZE;
+    }
+
+    @Test
+    public void recordedReplayReadsBack() throws IOException {
+        ReplayReader reader = ReplayReader.open(record(ReplayRecorder.LOST));
+        assertEquals(ReplayRecorder.LOST, reader.getOutcome());
+        assertTurns(reader, TURNS.length);
+    }
+
+    @Test
+    public void replayWithoutFooterRebuildsTheIndex() throws IOException {
+        ReplayReader reader = ReplayReader.open(truncated(record(ReplayRecorder.WON), indexAndFooterSize()));
+        assertEquals(ReplayRecorder.UNKNOWN, reader.getOutcome());
+        assertTurns(reader, TURNS.length);
+    }
+
+    @Test
+    public void recordCutOffAtTheEndIsDropped() throws IOException {
+        ReplayReader reader = ReplayReader.open(truncated(record(ReplayRecorder.WON), indexAndFooterSize() + 3));
+        assertEquals(ReplayRecorder.UNKNOWN, reader.getOutcome());
+        assertTurns(reader, TURNS.length - 1);
+    }
+
+    @Test
+    public void analyzerTakesTheOutcomeFromTheFooter() throws IOException {
+        Path file = record(ReplayRecorder.LOST);
+        ReplayAnalyzer analyzer = new ReplayAnalyzer(10);
+        analyzer.add(ReplayReader.open(file));
+        analyzer.add(ReplayReader.open(truncated(file, indexAndFooterSize())));
+        ReplayAnalyzer.BotStatistics statistics = analyzer.getStatistics().iterator().next();
+        assertEquals(2, statistics.getReplays());
+        assertEquals(1, statistics.getLosses());
+        assertEquals(0, statistics.getWins());
+        assertEquals(1, statistics.getUnknown());
+        assertEquals(0, statistics.getWinRate(), 0);
+    }
+}
@@ -0,0 +1,215 @@
+package gridwars.simulator;
+
+import cern.ais.gridwars.api.command.MovementCommand;
+import cern.ais.gridwars.api.command.MovementCommand.Direction;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Movement, battle and growth rules of {@link GameState}, on hand-placed cells of a small universe.
+ */
+public class GameStateTest {
+    private GameState state;
+    private int cell;
+
+    @Before
+    public void setUp() {
+        state = new GameState(5);
+        cell = state.indexOf(2, 2);
+    }
+
+    private MovementCommand move(int from, Direction direction, int amount) {
+        return new MovementCommand(state.getCoordinates(from), direction, amount);
+    }
+
+    private int neighbor(int from, Direction direction) {
+        return state.getNeighbor(from, direction.ordinal());
+    }
+
+    @Test
+    public void growthRoundsHalfUp() {
+        state.place(0, GameState.PLAYER1, 1);
+        state.place(1, GameState.PLAYER1, 3);
+        state.place(2, GameState.PLAYER2, 5);
+        state.place(3, GameState.PLAYER2, 4);
+
+        state.grow(1.5, 100);
+
+        assertEquals(2, state.getPopulation(0));
+        assertEquals(5, state.getPopulation(1));
+        assertEquals(8, state.getPopulation(2));
+        assertEquals(6, state.getPopulation(3));
+    }
+
+    @Test
+    public void growthUsesTheCompetitionRate() {
+        state.place(0, GameState.PLAYER1, 5);
+        state.place(1, GameState.PLAYER1, 14);
+        state.place(2, GameState.PLAYER1, 100);
+
+        state.grow(1.1, 100);
+
+        assertEquals(6, state.getPopulation(0));
+        assertEquals(15, state.getPopulation(1));
+        assertEquals(100, state.getPopulation(2));
+    }
+
+    @Test
+    public void growthIsCappedAtTheMaximumPopulation() {
+        state.place(0, GameState.PLAYER1, 91);
+        state.place(1, GameState.PLAYER2, 95);
+        state.place(2, GameState.PLAYER2, 99);
+
+        state.grow(1.1, 100);
+
+        assertEquals(100, state.getPopulation(0));
+        assertEquals(100, state.getPopulation(1));
+        assertEquals(100, state.getPopulation(2));
+    }
+
+    @Test
+    public void emptyCellsDoNotGrow() {
+        state.grow(1.1, 100);
+
+        assertEquals(0, state.countCells(GameState.PLAYER1) + state.countCells(GameState.PLAYER2));
+    }
+
+    @Test
+    public void movesIntoEmptyAndOwnCellsMerge() {
+        state.place(cell, GameState.PLAYER1, 30);
+        state.place(neighbor(cell, Direction.LEFT), GameState.PLAYER1, 10);
+
+        assertTrue(state.applyMovements(GameState.PLAYER1, Arrays.asList(
+                move(cell, Direction.LEFT, 5), move(cell, Direction.RIGHT, 7))));
+
+        assertEquals(18, state.getPopulation(cell));
+        assertEquals(15, state.getPopulation(neighbor(cell, Direction.LEFT)));
+        assertEquals(GameState.PLAYER1, state.getOwner(neighbor(cell, Direction.RIGHT)));
+        assertEquals(7, state.getPopulation(neighbor(cell, Direction.RIGHT)));
+    }
+
+    @Test
+    public void movingAllTroopsLeavesTheCellEmpty() {
+        state.place(cell, GameState.PLAYER1, 30);
+
+        assertTrue(state.applyMovements(GameState.PLAYER1, Collections.singletonList(move(cell, Direction.UP, 30))));
+
+        assertEquals(GameState.NOBODY, state.getOwner(cell));
+        assertEquals(0, state.getPopulation(cell));
+    }
+
+    @Test
+    public void battleIsWonByTheBiggerSide() {
+        int target = neighbor(cell, Direction.DOWN);
+        state.place(cell, GameState.PLAYER1, 50);
+        state.place(target, GameState.PLAYER2, 20);
+
+        assertTrue(state.applyMovements(GameState.PLAYER1, Collections.singletonList(move(cell, Direction.DOWN, 30))));
+
+        assertEquals(GameState.PLAYER1, state.getOwner(target));
+        assertEquals(10, state.getPopulation(target));
+    }
+
+    @Test
+    public void battleIsHeldByTheBiggerDefender() {
+        int target = neighbor(cell, Direction.DOWN);
+        state.place(cell, GameState.PLAYER1, 50);
+        state.place(target, GameState.PLAYER2, 20);
+
+        assertTrue(state.applyMovements(GameState.PLAYER1, Collections.singletonList(move(cell, Direction.DOWN, 15))));
+
+        assertEquals(GameState.PLAYER2, state.getOwner(target));
+        assertEquals(5, state.getPopulation(target));
+    }
+
+    @Test
+    public void evenBattleEmptiesTheCell() {
+        int target = neighbor(cell, Direction.DOWN);
+        state.place(cell, GameState.PLAYER1, 50);
+        state.place(target, GameState.PLAYER2, 20);
+
+        assertTrue(state.applyMovements(GameState.PLAYER1, Collections.singletonList(move(cell, Direction.DOWN, 20))));
+
+        assertEquals(GameState.NOBODY, state.getOwner(target));
+        assertEquals(0, state.getPopulation(target));
+    }
+
+    @Test
+    public void attackersFromSeveralCellsFightTogether() {
+        int target = neighbor(cell, Direction.RIGHT);
+        int other = neighbor(target, Direction.RIGHT);
+        state.place(cell, GameState.PLAYER1, 50);
+        state.place(other, GameState.PLAYER1, 50);
+        state.place(target, GameState.PLAYER2, 40);
+
+        assertTrue(state.applyMovements(GameState.PLAYER1, Arrays.asList(
+                move(cell, Direction.RIGHT, 25), move(other, Direction.LEFT, 25))));
+
+        assertEquals(GameState.PLAYER1, state.getOwner(target));
+        assertEquals(10, state.getPopulation(target));
+    }
+
+    @Test
+    public void movingFromAForeignCellVoidsTheTurn() {
+        int enemy = neighbor(cell, Direction.UP);
+        state.place(cell, GameState.PLAYER1, 50);
+        state.place(enemy, GameState.PLAYER2, 20);
+
+        assertVoided(Arrays.asList(move(cell, Direction.LEFT, 10), move(enemy, Direction.UP, 5)));
+    }
+
+    @Test
+    public void movingFromAnEmptyCellVoidsTheTurn() {
+        state.place(cell, GameState.PLAYER1, 50);
+
+        assertVoided(Arrays.asList(move(cell, Direction.LEFT, 10), move(neighbor(cell, Direction.UP), Direction.UP, 0)));
+    }
+
+    @Test
+    public void negativeAmountVoidsTheTurn() {
+        state.place(cell, GameState.PLAYER1, 50);
+
+        assertVoided(Arrays.asList(move(cell, Direction.LEFT, 10), move(cell, Direction.RIGHT, -1)));
+    }
+
+    @Test
+    public void overdrawingACellVoidsTheTurn() {
+        state.place(cell, GameState.PLAYER1, 50);
+
+        assertVoided(Arrays.asList(move(cell, Direction.LEFT, 30), move(cell, Direction.RIGHT, 21)));
+    }
+
+    @Test
+    public void troopsThatArriveThisTurnCannotMoveOn() {
+        int target = neighbor(cell, Direction.LEFT);
+        state.place(cell, GameState.PLAYER1, 50);
+        state.place(target, GameState.PLAYER1, 10);
+
+        assertVoided(Arrays.asList(move(cell, Direction.LEFT, 40), move(target, Direction.LEFT, 20)));
+    }
+
+    // The whole turn is rejected and the board is left as it was
+    private void assertVoided(List<MovementCommand> commands) {
+        GameState before = new GameState(state);
+        before.copyFrom(state);
+
+        assertFalse(state.applyMovements(GameState.PLAYER1, commands));
+
+        for (int i = 0; i < state.getCellCount(); i++) {
+            assertEquals(before.getOwner(i), state.getOwner(i));
+            assertEquals(before.getPopulation(i), state.getPopulation(i));
+        }
+
+        // Nothing of the voided turn is left behind for the next one
+        assertTrue(state.applyMovements(GameState.PLAYER1, Collections.singletonList(move(cell, Direction.DOWN, 1))));
+        assertEquals(before.getPopulation(cell) - 1, state.getPopulation(cell));
+    }
+}
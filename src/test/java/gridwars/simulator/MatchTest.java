@@ -0,0 +1,160 @@
+package gridwars.simulator;
+
+import cern.ais.gridwars.api.bot.PlayerBot;
+import cern.ais.gridwars.api.command.MovementCommand;
+import cern.ais.gridwars.api.command.MovementCommand.Direction;
+import gridwars.tournament.MatchResult;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Turn order, battle timing and the turn timeout of a {@link Match}, with scripted bots on hand-placed cells.
+ */
+public class MatchTest {
+    private static final PlayerBot IDLE = (universeView, commands) -> {
+    };
+
+    private static Match newMatch(GameSimulator simulator, PlayerBot bot1, PlayerBot bot2) {
+        Match match = simulator.newMatch(bot1, bot2, 1);
+        GameState state = match.getState();
+        for (int cell = 0; cell < state.getCellCount(); cell++) {
+            state.place(cell, GameState.NOBODY, 0);
+        }
+        return match;
+    }
+
+    @Test
+    public void battlesAreFoughtRightAfterEveryTurn() {
+        GameSimulator simulator = new GameSimulator(5, 100, 1.1, 100, 10, 50, false);
+        PlayerBot attacker = (universeView, commands) ->
+                commands.add(new MovementCommand(universeView.getCoordinates(2, 2), Direction.LEFT, 30));
+        int[] seenByDefender = new int[1];
+        PlayerBot defender = (universeView, commands) -> {
+            if (universeView.getCurrentTurn() == 1) {
+                seenByDefender[0] = universeView.belongsToMe(universeView.getCoordinates(1, 2)) ? 1 : 2;
+            }
+        };
+        Match match = newMatch(simulator, attacker, defender);
+        GameState state = match.getState();
+        state.place(state.indexOf(2, 2), GameState.PLAYER1, 50);
+        int target = state.getNeighbor(state.indexOf(2, 2), Direction.LEFT.ordinal());
+        state.place(target, GameState.PLAYER2, 20);
+        state.place(state.indexOf(4, 4), GameState.PLAYER2, 10);
+
+        match.step();
+
+        // Resolved before the defender moves and before the round ends with growth
+        assertEquals(GameState.PLAYER1, state.getOwner(target));
+        assertEquals(10, state.getPopulation(target));
+        assertEquals(20, state.getPopulation(state.indexOf(2, 2)));
+
+        match.step();
+
+        assertEquals(2, seenByDefender[0]);
+        assertEquals(11, state.getPopulation(target));
+        assertEquals(22, state.getPopulation(state.indexOf(2, 2)));
+    }
+
+    @Test
+    public void invalidTurnIsSkipped() {
+        GameSimulator simulator = new GameSimulator(5, 100, 1.1, 100, 10, 50, false);
+        PlayerBot cheater = (universeView, commands) -> {
+            commands.add(new MovementCommand(universeView.getCoordinates(2, 2), Direction.LEFT, 10));
+            commands.add(new MovementCommand(universeView.getCoordinates(2, 2), Direction.RIGHT, 41));
+        };
+        Match match = newMatch(simulator, cheater, IDLE);
+        GameState state = match.getState();
+        state.place(state.indexOf(2, 2), GameState.PLAYER1, 50);
+        state.place(state.indexOf(4, 4), GameState.PLAYER2, 10);
+
+        match.step();
+
+        assertEquals(1, match.getSkippedTurns(GameState.PLAYER1));
+        assertEquals(50, state.getPopulation(state.indexOf(2, 2)));
+        assertEquals(1, state.countCells(GameState.PLAYER1));
+    }
+
+    @Test
+    public void skippedTurnsAndTheFirstExceptionReachTheResult() {
+        GameSimulator simulator = new GameSimulator(5, 100, 1.1, 100, 3, 50, false);
+        int[] calls = new int[1];
+        PlayerBot failing = (universeView, commands) -> {
+            calls[0]++;
+            if (calls[0] == 1) {
+                throw new IllegalStateException("first");
+            }
+            // Invalid amount, skipped without exception
+            commands.add(new MovementCommand(universeView.getCoordinates(2, 2), Direction.LEFT, -1));
+            if (calls[0] == 3) {
+                throw new ArithmeticException("second");
+            }
+        };
+        Match match = newMatch(simulator, IDLE, failing);
+        GameState state = match.getState();
+        state.place(state.indexOf(0, 0), GameState.PLAYER1, 10);
+        state.place(state.indexOf(2, 2), GameState.PLAYER2, 10);
+
+        match.play();
+        MatchResult result = match.toResult();
+
+        assertEquals(0, result.getSkippedTurns1());
+        assertEquals(3, result.getSkippedTurns2());
+        assertNull(result.getException1());
+        assertEquals(IllegalStateException.class.getName(), result.getException2());
+        assertTrue(result.toCsvRow().endsWith(",0,3,," + IllegalStateException.class.getName()));
+    }
+
+    @Test
+    public void commandsAfterTheTimeoutAreIgnored() {
+        GameSimulator simulator = new GameSimulator(5, 100, 1.1, 100, 10, 20, true);
+        PlayerBot slow = (universeView, commands) -> {
+            commands.add(new MovementCommand(universeView.getCoordinates(2, 2), Direction.LEFT, 10));
+            sleep(universeView.getTurnTimeOutInMilliseconds() + 30);
+            commands.add(new MovementCommand(universeView.getCoordinates(2, 2), Direction.RIGHT, 10));
+        };
+        Match match = newMatch(simulator, slow, IDLE);
+        GameState state = match.getState();
+        int cell = state.indexOf(2, 2);
+        state.place(cell, GameState.PLAYER1, 50);
+        state.place(state.indexOf(4, 4), GameState.PLAYER2, 10);
+
+        match.step();
+
+        assertEquals(0, match.getSkippedTurns(GameState.PLAYER1));
+        assertEquals(40, state.getPopulation(cell));
+        assertEquals(10, state.getPopulation(state.getNeighbor(cell, Direction.LEFT.ordinal())));
+        assertEquals(0, state.getPopulation(state.getNeighbor(cell, Direction.RIGHT.ordinal())));
+    }
+
+    @Test
+    public void timeoutIsIgnoredUnlessEnforced() {
+        GameSimulator simulator = new GameSimulator(5, 100, 1.1, 100, 10, 20, false);
+        PlayerBot slow = (universeView, commands) -> {
+            sleep(universeView.getTurnTimeOutInMilliseconds() + 30);
+            commands.add(new MovementCommand(universeView.getCoordinates(2, 2), Direction.RIGHT, 10));
+        };
+        Match match = newMatch(simulator, slow, IDLE);
+        GameState state = match.getState();
+        int cell = state.indexOf(2, 2);
+        state.place(cell, GameState.PLAYER1, 50);
+        state.place(state.indexOf(4, 4), GameState.PLAYER2, 10);
+
+        match.step();
+
+        assertEquals(40, state.getPopulation(cell));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package gridwars.starter;
+
+import cern.ais.gridwars.api.Coordinates;
+import cern.ais.gridwars.api.bot.PlayerBot;
+import cern.ais.gridwars.api.command.MovementCommand;
+import gridwars.TestPositions;
+import gridwars.harness.PositionView;
+import gridwars.utils.BoardSnapshot;
+import gridwars.utils.BotUtils;
+import gridwars.utils.DirectionSet;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * The direction queries work on {@link DirectionSet} masks, so in a steady-state turn a bot allocates no more than
+ * the movement commands it emits.
+ */
+public class DirectionAllocationTest {
+    private static final int WARMUP_TURNS = 2000;
+    private static final int MEASURED_TURNS = 50;
+
+    private com.sun.management.ThreadMXBean threadBean;
+    private PositionView view;
+    private BoardSnapshot board;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported() && threadBean.isThreadAllocatedMemoryEnabled());
+
+        view = TestPositions.view(TestPositions.random(new Random(1), 50, 0.4, 0.3));
+        board = new BoardSnapshot();
+        board.update(view);
+    }
+
+    private long allocatedBytes() {
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    @Test
+    public void directionQueriesDoNotAllocate() {
+        Random random = new Random(2);
+        long sink = 0;
+        for (int round = 0; round < 2; round++) {
+            // The first round warms up, the second is measured
+            long before = allocatedBytes();
+            for (int repeat = 0; repeat < (round == 0 ? 200 : 5); repeat++) {
+                for (int i = 0; i < board.getMyCellCount(); i++) {
+                    sink += queryDirections(board.getMyCell(i), random);
+                }
+            }
+            if (round == 1) {
+                assertEquals("bytes allocated by direction queries", 0, allocatedBytes() - before);
+            }
+        }
+        assertTrue(sink != 0);
+    }
+
+    private int queryDirections(int cell, Random random) {
+        return walk(BotUtils.getAvailableDirections(cell, board), random)
+                + walk(BotUtils.getEmptyNeighborDirections(cell, board), random)
+                + walk(BotUtils.getWeakestEnemyDirections(cell, board), random)
+                + walk(BotUtils.getEnemyClusterDirections(cell, board), random);
+    }
+
+    private static int walk(int set, Random random) {
+        int sum = 1;
+        for (int rest = set; rest != DirectionSet.NONE; rest = DirectionSet.removeFirst(rest)) {
+            sum += DirectionSet.first(rest).ordinal();
+        }
+        if (!DirectionSet.isEmpty(set)) {
+            sum += DirectionSet.random(set, random).ordinal() + DirectionSet.size(set);
+        }
+        return sum;
+    }
+
+    @Test
+    public void expandBotAllocatesOnlyItsCommands() {
+        assertSteadyStateAllocation(new ExpandBot());
+    }
+
+    @Test
+    public void quantumConquerorAllocatesOnlyItsCommands() {
+        assertSteadyStateAllocation(new QuantumConqueror());
+    }
+
+    @Test
+    public void frierenAllocatesOnlyItsCommands() {
+        assertSteadyStateAllocation(new Frieren());
+    }
+
+    private void assertSteadyStateAllocation(PlayerBot bot) {
+        List<MovementCommand> commands = new ArrayList<>(4 * view.getUniverseSize() * view.getUniverseSize());
+        for (int turn = 0; turn < WARMUP_TURNS; turn++) {
+            commands.clear();
+            bot.getNextCommands(view, commands);
+        }
+
+        long commandBytes = 0;
+        long allocated = 0;
+        long emitted = 0;
+        for (int turn = 0; turn < MEASURED_TURNS; turn++) {
+            commands.clear();
+            long before = allocatedBytes();
+            bot.getNextCommands(view, commands);
+            allocated += allocatedBytes() - before;
+            emitted += commands.size();
+            commandBytes += bytesPerCommand(commands);
+        }
+        assertTrue("no commands emitted", emitted > 0);
+        assertTrue(bot.getClass().getSimpleName() + " allocated " + allocated + " bytes for " + emitted
+                + " commands of " + commandBytes + " bytes", allocated <= commandBytes);
+    }
+
+    // Bytes taken by building the same commands again; the coalescer may replace every command once
+    private long bytesPerCommand(List<MovementCommand> commands) {
+        Coordinates from = view.getCoordinates(0, 0);
+        MovementCommand[] copies = new MovementCommand[commands.size()];
+        long before = allocatedBytes();
+        for (int i = 0; i < copies.length; i++) {
+            copies[i] = new MovementCommand(from, commands.get(i).getDirection(), commands.get(i).getAmount());
+        }
+        return 2 * (allocatedBytes() - before);
+    }
+}
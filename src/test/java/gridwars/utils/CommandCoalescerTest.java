@@ -0,0 +1,237 @@
+package gridwars.utils;
+
+import cern.ais.gridwars.api.Coordinates;
+import cern.ais.gridwars.api.command.MovementCommand;
+import cern.ais.gridwars.api.command.MovementCommand.Direction;
+import gridwars.TestPositions;
+import gridwars.harness.Position;
+import gridwars.harness.PositionView;
+import gridwars.simulator.DeadlineCommandList;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Properties of {@link CommandCoalescer} on random boards and random command lists that mix valid commands with
+ * empty, foreign, duplicate, opposing and overdrawing ones.
+ */
+public class CommandCoalescerTest {
+    private static final int BOARDS = 300;
+
+    @Test
+    public void outputIsValidAndKeepsEveryCellOutsideClampedOnes() {
+        Random random = new Random(1);
+        for (int round = 0; round < BOARDS; round++) {
+            checkRandomTurn(random, false);
+        }
+    }
+
+    @Test
+    public void redistributedRemaindersOnlyMoveTheirOwnTroops() {
+        Random random = new Random(2);
+        for (int round = 0; round < BOARDS; round++) {
+            checkRandomTurn(random, true);
+        }
+    }
+
+    @Test
+    public void equalMovesAreKeptUnlessRedistributionIsEnabled() {
+        byte[] owners = new byte[25];
+        int[] populations = new int[25];
+        Arrays.fill(owners, BoardSnapshot.MINE);
+        Arrays.fill(populations, 10);
+        populations[2 * 5 + 2] = 11;
+        Position position = new Position();
+        position.set("split", 5, 10, 1.1, 100, owners, populations);
+        PositionView view = TestPositions.view(position);
+        Coordinates cell = view.getCoordinates(2, 2);
+
+        // Sends 3 twice and keeps 5: a deliberate move by default, an even split with remainder 2 on request
+        List<MovementCommand> commands = new ArrayList<>(Arrays.asList(
+                new MovementCommand(cell, Direction.LEFT, 3), new MovementCommand(cell, Direction.RIGHT, 3)));
+        CommandCoalescer coalescer = new CommandCoalescer();
+        coalescer.process(view, commands);
+        assertEquals(3, commands.get(0).getAmount());
+        assertEquals(3, commands.get(1).getAmount());
+        assertEquals(0, coalescer.getRedistributedPopulation());
+
+        commands = new ArrayList<>(Arrays.asList(
+                new MovementCommand(cell, Direction.LEFT, 3), new MovementCommand(cell, Direction.RIGHT, 3)));
+        coalescer.setRedistributeRemainders(true).process(view, commands);
+        assertEquals(4, commands.get(0).getAmount());
+        assertEquals(4, commands.get(1).getAmount());
+        assertEquals(2, coalescer.getRedistributedPopulation());
+    }
+
+    @Test
+    public void commandsSurviveAListThatIgnoresAdditionsAfterTheDeadline() {
+        Random random = new Random(4);
+        for (int round = 0; round < 20; round++) {
+            PositionView view = TestPositions.view(TestPositions.random(random, 10, 0.5, 0.2));
+            BoardSnapshot board = new BoardSnapshot();
+            board.update(view);
+            List<MovementCommand> commands = randomCommands(random, view, board);
+
+            List<MovementCommand> expected = new ArrayList<>(commands);
+            new CommandCoalescer().process(view, expected);
+
+            DeadlineCommandList late = new DeadlineCommandList();
+            long deadline = System.nanoTime() + 1_000_000L;
+            late.startTurn(deadline);
+            late.addAll(commands);
+            while (System.nanoTime() - deadline <= 0) {
+                Thread.onSpinWait();
+            }
+            assertFalse(late.add(commands.isEmpty() ? null : commands.get(0)));
+
+            new CommandCoalescer().process(view, late);
+            assertEquals(expected.size(), late.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).getCoordinatesFrom(), late.get(i).getCoordinatesFrom());
+                assertEquals(expected.get(i).getDirection(), late.get(i).getDirection());
+                assertEquals(expected.get(i).getAmount(), late.get(i).getAmount());
+            }
+        }
+    }
+
+    private static void checkRandomTurn(Random random, boolean redistributeRemainders) {
+        int size = 3 + random.nextInt(20);
+        PositionView view = TestPositions.view(TestPositions.random(random, size, 0.5, 0.2));
+        BoardSnapshot board = new BoardSnapshot();
+        board.update(view);
+        List<MovementCommand> input = randomCommands(random, view, board);
+        List<MovementCommand> output = new ArrayList<>(input);
+
+        CommandCoalescer coalescer = new CommandCoalescer().setRedistributeRemainders(redistributeRemainders);
+        coalescer.process(view, output);
+
+        int cellCount = board.getCellCount();
+        long[] requested = new long[cellCount];
+        long[] expected = endPopulations(board, input, requested);
+        long[] actual = endPopulations(board, output, new long[cellCount]);
+
+        // Every command is complete, moves troops from a cell of the bot, and is the only one for its direction
+        boolean[] seen = new boolean[cellCount * BoardSnapshot.DIRECTION_COUNT];
+        long[] outgoing = new long[cellCount];
+        for (MovementCommand command : output) {
+            assertNotNull(command);
+            assertNotNull(command.getCoordinatesFrom());
+            assertNotNull(command.getDirection());
+            assertTrue(command.getAmount() > 0);
+            int cell = board.indexOf(command.getCoordinatesFrom());
+            assertTrue(board.belongsToMe(cell));
+            int key = cell * BoardSnapshot.DIRECTION_COUNT + command.getDirection().ordinal();
+            assertFalse(seen[key]);
+            seen[key] = true;
+            outgoing[cell] += command.getAmount();
+        }
+        for (int cell = 0; cell < cellCount; cell++) {
+            assertTrue("cell " + cell + " overdraws", outgoing[cell] <= board.getPopulation(cell));
+        }
+
+        // Cells whose commands asked for more than they hold, and the cells those commands lead to, may differ
+        boolean[] clamped = new boolean[cellCount];
+        for (MovementCommand command : validCommands(board, input)) {
+            int cell = board.indexOf(command.getCoordinatesFrom());
+            if (requested[cell] > board.getPopulation(cell)) {
+                clamped[cell] = true;
+                clamped[board.getNeighbor(cell, command.getDirection())] = true;
+            }
+        }
+
+        long total = 0;
+        long moved = 0;
+        for (int cell = 0; cell < cellCount; cell++) {
+            total += actual[cell];
+            assertTrue(actual[cell] >= 0);
+            if (!clamped[cell]) {
+                moved += Math.abs(actual[cell] - expected[cell]);
+            }
+        }
+        assertEquals("total population", totalPopulation(board), total);
+        // Every redistributed troop leaves one cell and arrives in another
+        assertTrue(moved <= 2 * coalescer.getRedistributedPopulation());
+        if (!redistributeRemainders) {
+            assertEquals(0, moved);
+            assertEquals(0, coalescer.getRedistributedPopulation());
+        }
+    }
+
+    private static List<MovementCommand> randomCommands(Random random, PositionView view, BoardSnapshot board) {
+        List<MovementCommand> commands = new ArrayList<>();
+        int count = random.nextInt(3 * board.getCellCount());
+        for (int i = 0; i < count; i++) {
+            int cell = random.nextInt(board.getMyCellCount() * 2) < board.getMyCellCount()
+                    ? board.getMyCell(random.nextInt(board.getMyCellCount()))
+                    : random.nextInt(board.getCellCount());
+            Coordinates from = view.getCoordinates(board.getX(cell), board.getY(cell));
+            Direction direction = BoardSnapshot.DIRECTIONS[random.nextInt(BoardSnapshot.DIRECTION_COUNT)];
+            int population = board.getPopulation(cell);
+            switch (random.nextInt(10)) {
+                case 0:
+                    commands.add(new MovementCommand(from, direction, -random.nextInt(5)));
+                    break;
+                case 1:
+                    commands.add(new MovementCommand(random.nextBoolean() ? null : from,
+                            random.nextBoolean() ? null : direction, 1));
+                    break;
+                case 2:
+                    // Overdraw
+                    commands.add(new MovementCommand(from, direction, population + 1 + random.nextInt(50)));
+                    break;
+                case 3:
+                    // Even split of the whole population, keeping the division remainder
+                    int parts = 1 + random.nextInt(BoardSnapshot.DIRECTION_COUNT);
+                    for (int d = 0; d < parts; d++) {
+                        commands.add(new MovementCommand(from, BoardSnapshot.DIRECTIONS[d], population / (parts + 1)));
+                    }
+                    break;
+                default:
+                    commands.add(new MovementCommand(from, direction, random.nextInt(1 + population / 3)));
+            }
+        }
+        return commands;
+    }
+
+    private static List<MovementCommand> validCommands(BoardSnapshot board, List<MovementCommand> commands) {
+        List<MovementCommand> valid = new ArrayList<>();
+        for (MovementCommand command : commands) {
+            if (command.getCoordinatesFrom() != null && command.getDirection() != null && command.getAmount() > 0
+                    && board.belongsToMe(board.indexOf(command.getCoordinatesFrom()))) {
+                valid.add(command);
+            }
+        }
+        return valid;
+    }
+
+    // Population of every cell after the valid commands moved their troops, ignoring battles and ownership
+    private static long[] endPopulations(BoardSnapshot board, List<MovementCommand> commands, long[] requested) {
+        long[] populations = new long[board.getCellCount()];
+        for (int cell = 0; cell < populations.length; cell++) {
+            populations[cell] = board.getPopulation(cell);
+        }
+        for (MovementCommand command : validCommands(board, commands)) {
+            int cell = board.indexOf(command.getCoordinatesFrom());
+            requested[cell] += command.getAmount();
+            populations[cell] -= command.getAmount();
+            populations[board.getNeighbor(cell, command.getDirection())] += command.getAmount();
+        }
+        return populations;
+    }
+
+    private static long totalPopulation(BoardSnapshot board) {
+        long total = 0;
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            total += board.getPopulation(cell);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,135 @@
+package gridwars.utils;
+
+import cern.ais.gridwars.api.command.MovementCommand;
+import gridwars.TestPositions;
+import org.junit.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The flow field leads every cell of the territory to the nearest border cell, and routing the surplus along it
+ * conserves the population and never pushes a cell above the maximum population.
+ */
+public class FlowFieldTest {
+    private static final int MAXIMUM_POPULATION = 100;
+    private static final int RESERVE = 5;
+
+    private static BoardSnapshot randomBoard(Random random, int size) {
+        BoardSnapshot board = new BoardSnapshot();
+        // Dense territories have deep interiors
+        board.update(TestPositions.view(TestPositions.random(random, size, 0.8, 0.1)));
+        return board;
+    }
+
+    // Distances by a plain breadth-first search from every border cell through the territory
+    private static int[] scanDistances(BoardSnapshot board, FrontierIndex frontier) {
+        int[] distances = new int[board.getCellCount()];
+        Arrays.fill(distances, FlowField.UNREACHABLE);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int i = 0; i < frontier.getBorderCount(); i++) {
+            distances[frontier.getBorderCell(i)] = 0;
+            queue.add(frontier.getBorderCell(i));
+        }
+        while (!queue.isEmpty()) {
+            int cell = queue.poll();
+            for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+                int neighbor = board.getNeighbor(cell, d);
+                if (board.belongsToMe(neighbor) && distances[neighbor] == FlowField.UNREACHABLE) {
+                    distances[neighbor] = distances[cell] + 1;
+                    queue.add(neighbor);
+                }
+            }
+        }
+        return distances;
+    }
+
+    @Test
+    public void fieldLeadsDownToTheBorder() {
+        Random random = new Random(1);
+        for (int round = 0; round < 10; round++) {
+            BoardSnapshot board = randomBoard(random, 40);
+            FrontierIndex frontier = new FrontierIndex();
+            frontier.update(board);
+            FlowField field = new FlowField();
+            field.compute(board, frontier);
+
+            int[] expected = scanDistances(board, frontier);
+            for (int cell = 0; cell < board.getCellCount(); cell++) {
+                assertEquals("distance of cell " + cell, expected[cell], field.getDistance(cell));
+                int direction = field.getDownhill(cell);
+                if (expected[cell] == 0 || expected[cell] == FlowField.UNREACHABLE) {
+                    assertEquals(FlowField.NO_DIRECTION, direction);
+                } else {
+                    int next = board.getNeighbor(cell, direction);
+                    assertTrue(board.belongsToMe(next));
+                    assertEquals(expected[cell] - 1, field.getDistance(next));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void routingConservesPopulationAndRespectsTheMaximum() {
+        Random random = new Random(2);
+        int routedRounds = 0;
+        for (int round = 0; round < 20; round++) {
+            BoardSnapshot board = randomBoard(random, 40);
+            FrontierIndex frontier = new FrontierIndex();
+            frontier.update(board);
+            FlowField field = new FlowField();
+            field.compute(board, frontier);
+
+            // Earlier passes already moved part of some border cells, also into the territory
+            List<MovementCommand> commandList = new ArrayList<>();
+            for (int i = 0; i < frontier.getBorderCount(); i += 2) {
+                int cell = frontier.getBorderCell(i);
+                int direction = random.nextInt(BoardSnapshot.DIRECTION_COUNT);
+                commandList.add(new MovementCommand(board.getCoordinates(cell), BoardSnapshot.DIRECTIONS[direction],
+                        board.getPopulation(cell) / 2));
+            }
+            int[] before = populationsAfter(board, commandList);
+            int existing = commandList.size();
+
+            field.routeSurplus(board, commandList, RESERVE, MAXIMUM_POPULATION, new TurnDeadline());
+            if (commandList.size() > existing) {
+                routedRounds++;
+            }
+            int[] after = populationsAfter(board, commandList);
+
+            long total = 0;
+            for (int cell = 0; cell < board.getCellCount(); cell++) {
+                total += after[cell] - before[cell];
+                assertTrue("cell " + cell + " holds " + after[cell],
+                        after[cell] <= Math.max(MAXIMUM_POPULATION, before[cell]));
+            }
+            assertEquals("population added by routing", 0, total);
+        }
+        assertTrue(routedRounds > 0);
+    }
+
+    // Population of every cell after the moves, checking that no cell moves out more than it holds; moves out of the
+    // territory are counted on their target cell as well, so the total stays the same
+    private static int[] populationsAfter(BoardSnapshot board, List<MovementCommand> commandList) {
+        int[] populations = new int[board.getCellCount()];
+        int[] outgoing = new int[board.getCellCount()];
+        for (int cell = 0; cell < populations.length; cell++) {
+            populations[cell] = board.belongsToMe(cell) ? board.getPopulation(cell) : 0;
+        }
+        for (MovementCommand command : commandList) {
+            int cell = board.indexOf(command.getCoordinatesFrom());
+            assertTrue(board.belongsToMe(cell) && command.getAmount() >= 0);
+            outgoing[cell] += command.getAmount();
+            assertTrue("cell " + cell + " moves out more than it holds", outgoing[cell] <= board.getPopulation(cell));
+            populations[cell] -= command.getAmount();
+            populations[board.getNeighbor(cell, command.getDirection())] += command.getAmount();
+        }
+        return populations;
+    }
+}
@@ -0,0 +1,100 @@
+package gridwars.utils;
+
+import cern.ais.gridwars.api.UniverseView;
+import cern.ais.gridwars.api.bot.PlayerBot;
+import cern.ais.gridwars.api.command.MovementCommand;
+import gridwars.simulator.GameSimulator;
+import gridwars.simulator.Match;
+import gridwars.starter.ExpandBot;
+import gridwars.starter.Frieren;
+import gridwars.starter.QuantumConqueror;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * The incrementally maintained border of {@link FrontierIndex} matches a full scan of the board on every turn of
+ * simulated matches, in which territories grow, merge and get conquered.
+ */
+public class FrontierIndexTest {
+
+    // Plays the wrapped bot and checks the index against the board it sees before every turn
+    private static class CheckingBot implements PlayerBot {
+        final PlayerBot bot;
+        final BoardSnapshot board = new BoardSnapshot();
+        final FrontierIndex frontier = new FrontierIndex();
+        int checkedTurns;
+
+        CheckingBot(PlayerBot bot) {
+            this.bot = bot;
+        }
+
+        @Override
+        public void getNextCommands(UniverseView universeView, List<MovementCommand> commandList) {
+            board.update(universeView);
+            frontier.update(board);
+            assertMatchesScan(board, frontier, universeView.getCurrentTurn());
+            checkedTurns++;
+            bot.getNextCommands(universeView, commandList);
+        }
+    }
+
+    private static void assertMatchesScan(BoardSnapshot board, FrontierIndex frontier, int turn) {
+        int borderCount = 0;
+        for (int cell = 0; cell < board.getCellCount(); cell++) {
+            boolean border = false;
+            if (board.belongsToMe(cell)) {
+                for (int d = 0; d < BoardSnapshot.DIRECTION_COUNT; d++) {
+                    border |= !board.belongsToMe(board.getNeighbor(cell, d));
+                }
+            }
+            assertEquals("cell " + cell + " in turn " + turn, border, frontier.isBorder(cell));
+            if (border) {
+                borderCount++;
+            }
+        }
+        assertEquals("border count in turn " + turn, borderCount, frontier.getBorderCount());
+
+        // The listed cells are exactly the border cells, each listed once
+        boolean[] listed = new boolean[board.getCellCount()];
+        for (int i = 0; i < frontier.getBorderCount(); i++) {
+            int cell = frontier.getBorderCell(i);
+            assertTrue("border cell " + cell + " in turn " + turn, frontier.isBorder(cell) && !listed[cell]);
+            listed[cell] = true;
+        }
+    }
+
+    private static void play(PlayerBot bot1, PlayerBot bot2, long seed) {
+        GameSimulator simulator = new GameSimulator(30, 100, 1.1, 100, 300, 50, false);
+        CheckingBot checking1 = new CheckingBot(bot1);
+        CheckingBot checking2 = new CheckingBot(bot2);
+        Match match = simulator.newMatch(checking1, checking2, seed);
+        while (match.step()) {
+            // Every turn checks itself
+        }
+        assertTrue(checking1.checkedTurns > 10 && checking2.checkedTurns > 10);
+    }
+
+    @Test
+    public void frierenAgainstQuantumConqueror() {
+        for (long seed = 1; seed <= 3; seed++) {
+            Frieren frieren = new Frieren();
+            QuantumConqueror conqueror = new QuantumConqueror();
+            frieren.setRandomSeed(seed);
+            conqueror.setRandomSeed(seed);
+            play(frieren, conqueror, seed);
+        }
+    }
+
+    @Test
+    public void expandBotAgainstFrieren() {
+        for (long seed = 1; seed <= 3; seed++) {
+            Frieren frieren = new Frieren();
+            frieren.setRandomSeed(seed);
+            play(new ExpandBot(), frieren, seed);
+        }
+    }
+}
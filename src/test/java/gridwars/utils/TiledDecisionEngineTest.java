@@ -0,0 +1,107 @@
+package gridwars.utils;
+
+import cern.ais.gridwars.api.command.MovementCommand;
+import gridwars.TestPositions;
+import gridwars.harness.Position;
+import gridwars.harness.PositionView;
+import gridwars.starter.Frieren;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * With a deadline far away, the tiled engine gives the same commands on a pool, on the calling thread and in a plain
+ * loop over the border, as long as every cell is seeded the same way.
+ */
+public class TiledDecisionEngineTest {
+
+    // Moves a random part of the population in a random direction, so every decision depends on the cell's seed
+    private static TiledDecisionEngine.CellDecision randomMove(BoardSnapshot board) {
+        return (cell, random, commandList) -> {
+            if (random.nextInt(3) > 0) {
+                int direction = random.nextInt(BoardSnapshot.DIRECTION_COUNT);
+                int amount = random.nextInt(board.getPopulation(cell) + 1);
+                commandList.add(new MovementCommand(board.getCoordinates(cell), BoardSnapshot.DIRECTIONS[direction], amount));
+            }
+        };
+    }
+
+    @Test
+    public void poolAndCallingThreadDecideAlike() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            Random random = new Random(1);
+            // 50 and 37 leave partial tiles at the right and bottom edges
+            for (int size : new int[]{50, 37, 16}) {
+                for (int round = 0; round < 5; round++) {
+                    BoardSnapshot board = new BoardSnapshot();
+                    board.update(TestPositions.view(TestPositions.random(random, size, 0.4, 0.3)));
+                    FrontierIndex frontier = new FrontierIndex();
+                    frontier.update(board);
+                    long seed = random.nextLong();
+
+                    // A new deadline never expires
+                    List<MovementCommand> sequential = new ArrayList<>();
+                    new TiledDecisionEngine(null, 16)
+                            .run(board, frontier, seed, randomMove(board), new TurnDeadline(), sequential);
+                    List<MovementCommand> parallel = new ArrayList<>();
+                    new TiledDecisionEngine(pool, 16)
+                            .run(board, frontier, seed, randomMove(board), new TurnDeadline(), parallel);
+                    List<MovementCommand> loop = new ArrayList<>();
+                    Random cellRandom = new Random();
+                    for (int i = 0; i < frontier.getBorderCount(); i++) {
+                        int cell = frontier.getBorderCell(i);
+                        cellRandom.setSeed(TiledDecisionEngine.cellSeed(seed, cell));
+                        randomMove(board).decide(cell, cellRandom, loop);
+                    }
+
+                    assertTrue(loop.size() > 0);
+                    assertEquals("size " + size, multiset(loop), multiset(sequential));
+                    assertEquals("size " + size, multiset(loop), multiset(parallel));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void frierenDecidesAlikeOnThePool() {
+        Random random = new Random(2);
+        for (int round = 0; round < 10; round++) {
+            Position position = TestPositions.random(random, 50, 0.4, 0.3);
+            // A timeout no turn can reach, so every refinement runs on both bots
+            PositionView view = new PositionView(60_000, 4000);
+            view.load(position);
+            long seed = random.nextLong();
+
+            Frieren sequentialBot = new Frieren();
+            sequentialBot.setRandomSeed(seed);
+            Frieren parallelBot = new Frieren().setParallelDecisions(true);
+            parallelBot.setRandomSeed(seed);
+            List<MovementCommand> sequential = new ArrayList<>();
+            sequentialBot.getNextCommands(view, sequential);
+            List<MovementCommand> parallel = new ArrayList<>();
+            parallelBot.getNextCommands(view, parallel);
+
+            assertEquals("round " + round, multiset(sequential), multiset(parallel));
+        }
+    }
+
+    private static List<String> multiset(List<MovementCommand> commands) {
+        List<String> keys = new ArrayList<>();
+        for (MovementCommand command : commands) {
+            keys.add(command.getCoordinatesFrom().getX() + "," + command.getCoordinatesFrom().getY() + " "
+                    + command.getDirection() + " " + command.getAmount());
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+}
@@ -0,0 +1,65 @@
+package gridwars.utils;
+
+import cern.ais.gridwars.api.UniverseView;
+import gridwars.TestPositions;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * A refinement that overruns the deadline once does not keep cheaper refinements from running, and gets another
+ * chance after {@link TurnScheduler#RETRY_INTERVAL} skipped turns.
+ */
+public class TurnSchedulerTest {
+
+    @Test
+    public void refinementRecoversFromASingleOverrun() {
+        UniverseView view = TestPositions.view(TestPositions.random(new Random(1), 10, 0.3, 0.3));
+        int[] heavyCalls = new int[1];
+        TurnScheduler scheduler = new TurnScheduler((universeView, commandList, deadline) -> { }, 10)
+                .addRefinement("heavy", 2, (universeView, commandList, deadline) -> {
+                    // Only the first run is slower than the 40 ms left of the 50 ms timeout
+                    if (heavyCalls[0]++ == 0) {
+                        sleep(60);
+                    }
+                })
+                .addRefinement("cheap", 1, (universeView, commandList, deadline) -> { });
+
+        runTurn(scheduler, view);
+        assertEquals(1, scheduler.getRuns(0));
+        assertEquals(0, scheduler.getRuns(1));
+        assertEquals(0, scheduler.getLastCompletedRefinements());
+
+        runTurn(scheduler, view);
+        assertEquals("the heavy refinement is skipped", 1, scheduler.getRuns(0));
+        assertEquals("the cheap refinement still runs", 1, scheduler.getRuns(1));
+        assertEquals(1, scheduler.getLastCompletedRefinements());
+
+        for (int turn = 1; turn < TurnScheduler.RETRY_INTERVAL; turn++) {
+            runTurn(scheduler, view);
+        }
+        assertEquals(1, scheduler.getRuns(0));
+        runTurn(scheduler, view);
+        assertEquals("the heavy refinement is retried", 2, scheduler.getRuns(0));
+
+        runTurn(scheduler, view);
+        assertEquals("the retry replaced the estimate", 3, scheduler.getRuns(0));
+        assertEquals(2, scheduler.getLastCompletedRefinements());
+    }
+
+    private static void runTurn(TurnScheduler scheduler, UniverseView view) {
+        scheduler.run(view, new ArrayList<>(), System.nanoTime());
+        scheduler.endPostProcessing();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}